@@ -35,6 +35,7 @@ COMMANDS = {
     'run_precise':   './run.sh -nonoise %s',
     'build_sim':     './build.sh',
     'run_approx':    './run.sh %s',
+    'run_driver':    './drive.sh %s %s %s',
 }
 REPLICATIONS = 1
 STATS_FILENAME = 'enerjstats.json'
@@ -51,6 +52,13 @@ MODE_KEY = 'TIMING_ERROR_MODE'
 MODES = 1, 2, 3
 MODE_DEFAULT = 2
 NOISE_FILE = 'enerjnoiseconsts.json'
+DRIVER_PLAN = 'driverplan.txt'
+DRIVER_RESULTS = 'driverresults.txt'
+DRIVER_NOISE_FILE = 'drivernoise-%i.json'
+DRIVER_KEEP_NOISE = '-'
+# Name of a static method that makes the EnerJ runtime re-read NOISE_FILE.
+# Without it, the in-JVM driver is launched once per noise configuration.
+RELOAD_ENV = 'ENERJ_RELOAD'
 LOW = 0
 MED = 1
 HIGH = 2
@@ -144,22 +152,7 @@ def shell(line):
     
     return stdout
 
-def run(bmark, noise):
-    logging.info('running "%s" %s' % \
-                 (bmark.name, 'approx' if noise else 'precise'))
-                 
-    # Write out noise dictionary.
-    if noise is not None:
-        logging.debug('writing noise dictionary: %s' % noise)
-        with open(NOISE_FILE, 'w') as f:
-            json.dump(noise, f)
-    
-    # Get the stdout from running the benchmark.
-    if noise is not None:
-        cmd = COMMANDS['run_approx']
-    else:
-        cmd = COMMANDS['run_precise']
-    out = shell(cmd % bmark.runargs)
+def parse_output(bmark, out):
     out = re.sub(r'Loading Precision.+', '', out)
     out = out.strip()
     
@@ -187,6 +180,24 @@ def run(bmark, noise):
     else:
         assert False
 
+def run(bmark, noise):
+    logging.info('running "%s" %s' % \
+                 (bmark.name, 'approx' if noise else 'precise'))
+                 
+    # Write out noise dictionary.
+    if noise is not None:
+        logging.debug('writing noise dictionary: %s' % noise)
+        with open(NOISE_FILE, 'w') as f:
+            json.dump(noise, f)
+    
+    # Get the stdout from running the benchmark.
+    if noise is not None:
+        cmd = COMMANDS['run_approx']
+    else:
+        cmd = COMMANDS['run_precise']
+    out = shell(cmd % bmark.runargs)
+    return parse_output(bmark, out)
+
 def replicated_run(bmark, noise):
     out = []
     for i in xrange(REPLICATIONS):
@@ -199,7 +210,116 @@ def replicated_run(bmark, noise):
             # TODO! Log number of failed executions.
     return out
 
-def collect_outputs(path, bmarks, apronly=False, colonly=False):
+def read_driver_results(path):
+    """Parse the records written by ExperimentDriver into a dictionary
+    mapping plan line numbers to lists of (ok, output) pairs.
+    """
+    runs = {}
+    with open(path, 'rb') as f:
+        while True:
+            header = f.readline()
+            if not header:
+                break
+            _, line, rep, status, length = header.split()
+            out = f.read(int(length))
+            f.readline()
+            runs.setdefault(int(line), []).append((status == 'ok', out))
+    return runs
+
+def driver_batch(bmark, noises):
+    """Run every noise configuration in noises inside one JVM and return
+    the list of replicated outputs for each configuration.
+    """
+    logging.info('driving "%s" through %i configurations' % \
+                 (bmark.name, len(noises)))
+    with open(DRIVER_PLAN, 'w') as plan:
+        for i, noise in enumerate(noises):
+            if len(noises) == 1:
+                # The runtime reads the noise file at startup.
+                with open(NOISE_FILE, 'w') as f:
+                    json.dump(noise, f)
+                plan.write('%i %s\n' % (REPLICATIONS, DRIVER_KEEP_NOISE))
+            else:
+                with open(DRIVER_NOISE_FILE % i, 'w') as f:
+                    json.dump(noise, f)
+                plan.write('%i %s\n' % (REPLICATIONS, DRIVER_NOISE_FILE % i))
+    
+    try:
+        shell(COMMANDS['run_driver'] % (DRIVER_PLAN, DRIVER_RESULTS,
+                                        bmark.runargs))
+    except CommandError:
+        logging.warn('driver failed!')
+        return [[] for noise in noises]
+    runs = read_driver_results(DRIVER_RESULTS)
+    
+    outputs = []
+    for i in xrange(len(noises)):
+        out = []
+        for ok, res in runs.get(i, []):
+            if not ok:
+                logging.warn('execution failed!')
+                continue
+            res = parse_output(bmark, res)
+            logging.debug('output: ' + repr(res))
+            out.append(res)
+        outputs.append(out)
+    return outputs
+
+def driver_runs(bmark, noises):
+    if os.environ.get(RELOAD_ENV):
+        return driver_batch(bmark, noises)
+    else:
+        return [driver_batch(bmark, [noise])[0] for noise in noises]
+
+def noise_configs(colonly):
+    """Enumerate the noise matrix as (const, level, noise) triples. const
+    is None for collective variation.
+    """
+    configs = []
+    
+    # Collective variation.
+    for level in (LOW, MED, HIGH):
+        noise = {}
+        for name, vals in NOISE.iteritems():
+            noise[name] = vals[level]
+        noise[MODE_KEY] = MODE_DEFAULT
+        configs.append((None, level, noise))
+    
+    if colonly:
+        # Skip individual variation.
+        return configs
+    
+    # Individual variation.
+    for const in NOISE:
+        if const == MODES_NOISE_KEY:
+            continue
+        for level in (LOW, MED, HIGH):
+            noise = {}
+            for g_const, g_values in NOISE.iteritems():
+                if g_const == const:
+                    noise[g_const] = g_values[level]
+                else:
+                    noise[g_const] = DISABLED
+            noise[MODE_KEY] = DISABLED
+            configs.append((const, level, noise))
+
+    # Individual variation for timing error modes.
+    for mode in MODES:
+        name = '%s-%i' % (MODES_NOISE_KEY, mode)
+        for level in (LOW, MED, HIGH):
+            noise = {}
+            for g_const, g_values in NOISE.iteritems():
+                if g_const == MODES_NOISE_KEY:
+                    noise[g_const] = g_values[level]
+                else:
+                    noise[g_const] = DISABLED
+            noise[MODE_KEY] = mode
+            configs.append((name, level, noise))
+    
+    return configs
+
+def collect_outputs(path, bmarks, apronly=False, colonly=False,
+                    driver=False):
     curdir = os.getcwd()
     os.chdir(path)
 
@@ -224,60 +344,25 @@ def collect_outputs(path, bmarks, apronly=False, colonly=False):
         return results
     
     # Get approximate outputs.
-    approx_outputs = {}
-    stats = {}
+    configs = noise_configs(colonly)
     for bmark in bmarks:
+        if driver:
+            outputs = driver_runs(bmark, [noise for _, _, noise in configs])
+        else:
+            outputs = []
+            for const, level, noise in configs:
+                logging.info('noise level for %s: %i' % \
+                             (const or 'collective', level))
+                outputs.append(replicated_run(bmark, noise))
         
-        # Collective variation.
-        for level in (LOW, MED, HIGH):
-            logging.info('collective noise level: %i' % level)
-            noise = {}
-            for name, vals in NOISE.iteritems():
-                noise[name] = vals[level]
-            noise[MODE_KEY] = MODE_DEFAULT
-            results[bmark].output_collective[level] = \
-                replicated_run(bmark, noise)
-        
-        if colonly:
-            # Skip individual variation.
-            continue
-        
-        # Individual variation.
-        for const in NOISE:
-            if const == MODES_NOISE_KEY:
-                continue
-            logging.info('individual variation for %s' % const)
-            outputs = [None, None, None]
-            results[bmark].output_individual[const] = outputs
-            for level in (LOW, MED, HIGH):
-                logging.info('indiv. noise level for %s: %i' % (const, level))
-                noise = {}
-                for g_const, g_values in NOISE.iteritems():
-                    if g_const == const:
-                        noise[g_const] = g_values[level]
-                    else:
-                        noise[g_const] = DISABLED
-                noise[MODE_KEY] = DISABLED
-                outputs[level] = replicated_run(bmark, noise)
-
-        # Individual variation for timing error modes.
-        #FIXME Terrible copy-and-paste!
-        for mode in MODES:
-            logging.info('individual variation for %s mode %i' %
-                         (MODES_NOISE_KEY, mode))
-            name = '%s-%i' % (MODES_NOISE_KEY, mode)
-            outputs = [None, None, None]
-            results[bmark].output_individual[name] = outputs
-            for level in (LOW, MED, HIGH):
-                logging.info('mode noise level for %s: %i' % (name, level))
-                noise = {}
-                for g_const, g_values in NOISE.iteritems():
-                    if g_const == MODES_NOISE_KEY:
-                        noise[g_const] = g_values[level]
-                    else:
-                        noise[g_const] = DISABLED
-                noise[MODE_KEY] = mode
-                outputs[level] = replicated_run(bmark, noise)
+        for (const, level, noise), out in zip(configs, outputs):
+            if const is None:
+                results[bmark].output_collective[level] = out
+            else:
+                level_outputs = results[bmark].output_individual.setdefault(
+                    const, [None, None, None]
+                )
+                level_outputs[level] = out
     
     os.chdir(curdir)
     
@@ -384,6 +469,11 @@ if __name__ == '__main__':
     args = sys.argv[1:]
     apronly = False
     colonly = False
+    driver = False
+    if args and args[0] == '-j':
+        # Run the approximate executions through the in-JVM driver.
+        driver = True
+        args.pop(0)
     if args and args[0] == '-d':
         logging.getLogger('').setLevel(logging.DEBUG)
         args.pop(0)
@@ -401,7 +491,8 @@ if __name__ == '__main__':
     
     total = {}
     for path in paths:
-        results = collect_outputs(path, BMARKS[path], apronly, colonly)
+        results = collect_outputs(path, BMARKS[path], apronly, colonly,
+                                  driver)
         print '\n'.join(str(res) for res in results.itervalues())
         total.update(results)
     dump_json(total, JSON_OUT)
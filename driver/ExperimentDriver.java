@@ -0,0 +1,152 @@
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+
+/**
+ * Runs a benchmark's entry point many times inside a single JVM so that an
+ * experiment sweep pays for JVM startup, class loading and JIT warm-up once
+ * instead of once per (noise configuration, replication) pair.
+ *
+ * Usage:
+ * <pre>
+ *   ExperimentDriver [-reload class#method] mainclass plan results [args...]
+ * </pre>
+ *
+ * Each line of the plan file has the form
+ * <pre>
+ *   replications noisefile
+ * </pre>
+ * Before the line's runs, noisefile is copied over enerjnoiseconsts.json and
+ * the reload hook (a static no-argument method, if one was given) is invoked
+ * so the runtime picks up the new constants. A noisefile of "-" leaves the
+ * current constants alone; plans that change the noise without a reload hook
+ * are rejected, since the runtime only reads the file at startup otherwise.
+ *
+ * Every run calls mainclass.main(args) with System.out redirected into a
+ * buffer. The benchmarks (re)initialize all of their static state in main,
+ * so consecutive runs are independent. The results file gets one record per
+ * run:
+ * <pre>
+ *   #run line replication ok|fail length
+ *   ...length bytes of captured output...
+ * </pre>
+ */
+public class ExperimentDriver {
+    static final String NOISE_FILE = "enerjnoiseconsts.json";
+    static final String KEEP_NOISE = "-";
+
+    public static void main(String[] argv) throws Exception {
+        String reload = null;
+        int current_arg = 0;
+        if (argv.length > 1 && argv[0].equals("-reload")) {
+            reload = argv[1];
+            current_arg = 2;
+        }
+        if (argv.length - current_arg < 3) {
+            System.err.println("Usage: ExperimentDriver [-reload class#method] " +
+                               "mainclass plan results [args...]");
+            System.exit(2);
+        }
+
+        String mainClass = argv[current_arg];
+        String planFile = argv[current_arg + 1];
+        String resultsFile = argv[current_arg + 2];
+        String[] args = new String[argv.length - current_arg - 3];
+        System.arraycopy(argv, current_arg + 3, args, 0, args.length);
+
+        Method main = Class.forName(mainClass)
+            .getMethod("main", String[].class);
+        Method reloadHook = null;
+        if (reload != null) {
+            int hash = reload.indexOf('#');
+            if (hash < 0)
+                throw new IllegalArgumentException("reload hook must be class#method: " + reload);
+            reloadHook = Class.forName(reload.substring(0, hash))
+                .getMethod(reload.substring(hash + 1));
+        }
+
+        List<String[]> plan = readPlan(planFile);
+        if (reloadHook == null) {
+            for (String[] line : plan) {
+                if (!line[1].equals(KEEP_NOISE))
+                    throw new IllegalArgumentException(
+                        "plan changes noise constants but no -reload hook was given");
+            }
+        }
+
+        PrintStream stdout = System.out;
+        OutputStream results = new BufferedOutputStream(new FileOutputStream(resultsFile));
+        ByteArrayOutputStream buf = new ByteArrayOutputStream(1 << 16);
+        try {
+            for (int l = 0; l < plan.size(); l++) {
+                String[] line = plan.get(l);
+                int replications = Integer.parseInt(line[0]);
+                if (!line[1].equals(KEEP_NOISE)) {
+                    copyFile(line[1], NOISE_FILE);
+                    reloadHook.invoke(null);
+                }
+
+                for (int rep = 0; rep < replications; rep++) {
+                    buf.reset();
+                    PrintStream capture = new PrintStream(buf);
+                    boolean ok = true;
+                    System.setOut(capture);
+                    try {
+                        main.invoke(null, new Object[] { args.clone() });
+                    } catch (InvocationTargetException e) {
+                        ok = false;
+                        e.getCause().printStackTrace();
+                    } finally {
+                        capture.flush();
+                        System.setOut(stdout);
+                    }
+
+                    String header = "#run " + l + " " + rep + " " +
+                        (ok ? "ok" : "fail") + " " + buf.size() + "\n";
+                    results.write(header.getBytes("UTF-8"));
+                    buf.writeTo(results);
+                    results.write('\n');
+                }
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    private static List<String[]> readPlan(String filename) throws IOException {
+        List<String[]> plan = new ArrayList<String[]>();
+        BufferedReader reader = new BufferedReader(new FileReader(filename));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.length() == 0)
+                    continue;
+                String[] fields = line.split("\\s+");
+                if (fields.length != 2)
+                    throw new IllegalArgumentException("bad plan line: " + line);
+                plan.add(fields);
+            }
+        } finally {
+            reader.close();
+        }
+        return plan;
+    }
+
+    private static void copyFile(String from, String to) throws IOException {
+        InputStream in = new FileInputStream(from);
+        try {
+            OutputStream out = new FileOutputStream(to);
+            try {
+                byte[] chunk = new byte[8192];
+                int n;
+                while ((n = in.read(chunk)) != -1)
+                    out.write(chunk, 0, n);
+            } finally {
+                out.close();
+            }
+        } finally {
+            in.close();
+        }
+    }
+}
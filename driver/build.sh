@@ -0,0 +1,7 @@
+#!/bin/sh
+# The driver only shuffles arguments and output buffers, so it is compiled
+# precisely with plain javac and run on the benchmarks' classpath by each
+# benchmark's drive.sh.
+
+rm -f *.class
+javac ExperimentDriver.java
@@ -0,0 +1,238 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import enerj.lang.*;
+
+/** Labels every connected region of equal pixel values in a flat,
+    row-major image (pixel (x, y) is pixels[y*width + x]) in one pass,
+    instead of one flood fill per region.
+
+    The rows are cut into bands. Each band runs union-find over its own
+    pixels in parallel, linking every pixel to its left and upper
+    neighbours (and the upper diagonals for 8-connectivity) of the same
+    value. The bands are then joined by the same unions across their
+    border rows. Every set is rooted at its first pixel in raster order,
+    so labels are numbered in that order whatever the band count.
+
+    After label(), labels() gives each pixel's region and the region
+    arrays (color, area, bounding box) are indexed by label.
+*/
+public class ComponentLabeler {
+    static final int MIN_ROWS_PER_BAND = 16;
+
+    final @Approx int[] pixels;
+    final int width;
+    final int height;
+    final boolean eightConnected;
+
+    int[] parent;       // union-find forest
+    int[] labels;
+    int count;
+
+    @Approx int[] color;
+    int[] area;
+    int[] minX, minY, maxX, maxY;
+
+    public ComponentLabeler(@Approx int[] pixels, int width, int height,
+                            boolean eightConnected) {
+        if (pixels.length < width * height)
+            throw new IllegalArgumentException("buffer smaller than " + width + "x" + height);
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.eightConnected = eightConnected;
+    }
+
+    /** Labels the image on the pool and returns the number of regions. */
+    public int label(ForkJoinPool pool) {
+        int n = width * height;
+        parent = new int[n];
+        labels = new int[n];
+        if (n == 0)
+            return count = 0;
+
+        int bandRows = Math.max(MIN_ROWS_PER_BAND,
+                                (height + 4 * pool.getParallelism() - 1) / (4 * pool.getParallelism()));
+        int bands = (height + bandRows - 1) / bandRows;
+
+        pool.invoke(new Bands(this, Bands.UNION, bandRows, 0, bands));
+        for (int b = 1; b < bands; b++)
+            unionRow(b * bandRows);
+
+        // number the roots band by band, in raster order
+        int[] roots = new int[bands + 1];
+        pool.invoke(new Bands(this, Bands.COUNT, bandRows, 0, bands, roots));
+        for (int b = 0; b < bands; b++)
+            roots[b + 1] += roots[b];
+        count = roots[bands];
+        pool.invoke(new Bands(this, Bands.NUMBER, bandRows, 0, bands, roots));
+        pool.invoke(new Bands(this, Bands.RESOLVE, bandRows, 0, bands));
+
+        measure();
+        return count;
+    }
+
+    /** The label of pixel y*width + x, from 0 to regions()-1. */
+    public int[] labels() {
+        return labels;
+    }
+
+    public int regions() {
+        return count;
+    }
+
+    public @Approx int color(int region) { return color[region]; }
+    public int area(int region) { return area[region]; }
+    public int minX(int region) { return minX[region]; }
+    public int minY(int region) { return minY[region]; }
+    public int maxX(int region) { return maxX[region]; }
+    public int maxY(int region) { return maxY[region]; }
+
+
+    /* union-find, every set rooted at its smallest index */
+
+    final int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];      // path halving
+            i = parent[i];
+        }
+        return i;
+    }
+
+    final void union(int a, int b) {
+        int ra = find(a);
+        int rb = find(b);
+        if (ra < rb)
+            parent[rb] = ra;
+        else if (rb < ra)
+            parent[ra] = rb;
+    }
+
+    /* Rows y0..y1-1, linking only within them. */
+    void unionBand(int y0, int y1) {
+        for (int i = y0 * width; i < y1 * width; i++)
+            parent[i] = i;
+        for (int y = y0; y < y1; y++) {
+            int row = y * width;
+            for (int x = 0; x < width; x++) {
+                int i = row + x;
+                @Approx int c = pixels[i];
+                if (x > 0 && Endorsements.endorse(pixels[i-1] == c))
+                    union(i, i - 1);
+            }
+            if (y > y0)
+                unionRow(y);
+        }
+    }
+
+    /* Links row y to row y-1. */
+    void unionRow(int y) {
+        int row = y * width;
+        for (int x = 0; x < width; x++) {
+            int i = row + x;
+            int up = i - width;
+            @Approx int c = pixels[i];
+            if (Endorsements.endorse(pixels[up] == c))
+                union(i, up);
+            if (eightConnected) {
+                if (x > 0 && Endorsements.endorse(pixels[up-1] == c))
+                    union(i, up - 1);
+                if (x < width - 1 && Endorsements.endorse(pixels[up+1] == c))
+                    union(i, up + 1);
+            }
+        }
+    }
+
+    int countRoots(int y0, int y1) {
+        int roots = 0;
+        for (int i = y0 * width; i < y1 * width; i++)
+            if (parent[i] == i)
+                roots++;
+        return roots;
+    }
+
+    /* Roots get their labels, stored negated (-1 - label) so they can
+       be told from parent links; other pixels keep pointing upwards. */
+    void numberRoots(int y0, int y1, int first) {
+        for (int i = y0 * width; i < y1 * width; i++)
+            if (parent[i] == i)
+                parent[i] = -1 - first++;
+    }
+
+    /* The forest is only read here, so bands can follow links into
+       each other freely. */
+    void resolve(int y0, int y1) {
+        for (int i = y0 * width; i < y1 * width; i++) {
+            int p = i;
+            while (parent[p] >= 0)
+                p = parent[p];
+            labels[i] = -1 - parent[p];
+        }
+    }
+
+    void measure() {
+        color = new @Approx int[count];
+        area = new int[count];
+        minX = new int[count];
+        minY = new int[count];
+        maxX = new int[count];
+        maxY = new int[count];
+        for (int l = 0; l < count; l++) {
+            minX[l] = width;
+            minY[l] = height;
+            maxX[l] = -1;
+            maxY[l] = -1;
+        }
+        for (int y = 0, i = 0; y < height; y++) {
+            for (int x = 0; x < width; x++, i++) {
+                int l = labels[i];
+                if (area[l]++ == 0)
+                    color[l] = pixels[i];
+                if (x < minX[l]) minX[l] = x;
+                if (x > maxX[l]) maxX[l] = x;
+                if (y < minY[l]) minY[l] = y;
+                maxY[l] = y;
+            }
+        }
+    }
+
+    static final class Bands extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        static final int UNION = 0, COUNT = 1, NUMBER = 2, RESOLVE = 3;
+
+        private final ComponentLabeler L;
+        private final int phase, bandRows, lo, hi;
+        private final int[] roots;
+
+        Bands(ComponentLabeler L, int phase, int bandRows, int lo, int hi) {
+            this(L, phase, bandRows, lo, hi, null);
+        }
+
+        Bands(ComponentLabeler L, int phase, int bandRows, int lo, int hi, int[] roots) {
+            this.L = L;
+            this.phase = phase;
+            this.bandRows = bandRows;
+            this.lo = lo;
+            this.hi = hi;
+            this.roots = roots;
+        }
+
+        protected void compute() {
+            if (hi - lo > 1) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Bands(L, phase, bandRows, lo, mid, roots),
+                          new Bands(L, phase, bandRows, mid, hi, roots));
+                return;
+            }
+            int y0 = lo * bandRows;
+            int y1 = Math.min(y0 + bandRows, L.height);
+            switch (phase) {
+            case UNION:   L.unionBand(y0, y1); break;
+            case COUNT:   roots[lo + 1] = L.countRoots(y0, y1); break;
+            case NUMBER:  L.numberRoots(y0, y1, roots[lo]); break;
+            case RESOLVE: L.resolve(y0, y1); break;
+            }
+        }
+    }
+}
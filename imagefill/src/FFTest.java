@@ -1,4 +1,5 @@
 import java.io.*;
+import java.util.concurrent.ForkJoinPool;
 
 import enerj.lang.*;
 
@@ -7,38 +8,109 @@ public class FFTest {
 	static final int WIDTH = 100;
 	static final int HEIGHT = 100;
 
-    private static int asciiNum(int c) {
-        return c - 48;
-    }
-	
+	/* usage: FFTest [-span|-label] [-8] [-threads N] [width height] filename
+	   The file is an ASCII grid or a binary PGM (see ImageLoader), and its
+	   dimensions are read from it; width and height, if given, must match.
+	   -span fills with SpanFiller instead of FloodFiller. -label labels
+	   every region with ComponentLabeler on N threads and prints the
+	   labels followed by one line of statistics per region. -8 makes
+	   either 8-connected (and implies -span without -label). Options
+	   may come anywhere. */
 	public static void main(String[] argv) throws Exception {
-		int width = new Integer(argv[0]);
-		int height = new Integer(argv[1]);
-		String filename = argv[2];
-		
-		image = new @Approx int[width][height];
-		
-		FileReader reader = new FileReader(filename);
-		int c;
-		int x = 0;
-		int y = 0;
-		while ((c = reader.read()) != -1) {
-			if (c == '\n') {
-				y++;
-				x = 0;
+		boolean span = false;
+		boolean label = false;
+		boolean eight = false;
+		int threads = Runtime.getRuntime().availableProcessors();
+		String[] pos = new String[3];
+		int npos = 0;
+		for (int i = 0; i < argv.length; ++i) {
+			if (argv[i].equals("-span")) {
+				span = true;
+			} else if (argv[i].equals("-label")) {
+				label = true;
+			} else if (argv[i].equals("-8")) {
+				eight = true;
+			} else if (argv[i].equals("-threads")) {
+				if (i + 1 == argv.length)
+					throw usage();
+				threads = Integer.parseInt(argv[++i]);
 			} else {
-				image[x][y] = asciiNum(c);
-				x++;
+				if (npos == pos.length)
+					throw usage();
+				pos[npos++] = argv[i];
 			}
-        }
+		}
+		if (npos != 1 && npos != 3)
+			throw usage();
+		if (eight && !label)
+			span = true;
+		String filename = pos[npos - 1];
 
-		FloodFiller ff = new FloodFiller(image, 2);
-		ff.fill(0, 0);
-		for (y = 0; y < height; ++y) {
-			for (x = 0; x < width; ++x) {
-				System.out.print(Endorsements.endorse(image[x][y]) + " ");
-			}
+		ImageLoader input = ImageLoader.load(filename);
+		int width = input.width;
+		int height = input.height;
+		if (npos == 3 && (new Integer(pos[0]) != width || new Integer(pos[1]) != height))
+			throw new IllegalArgumentException(filename + " is " + width + "x" + height +
+			                                   ", not " + pos[0] + "x" + pos[1]);
+		@Approx int[] pixels = input.pixels;
+
+		if (label) {
+			printRegions(pixels, width, height, eight, threads);
+			return;
+		}
+
+		if (span) {
+			new SpanFiller(pixels, width, height, 2, eight).fill(0, 0);
+		} else {
+			image = new @Approx int[width][height];
+			SpanFiller.toColumnMajor(pixels, image);
+			FloodFiller ff = new FloodFiller(image, 2);
+			ff.fill(0, 0);
+			pixels = SpanFiller.toRowMajor(image);
+		}
+
+		PrintWriter out = new PrintWriter(new BufferedWriter(
+			new OutputStreamWriter(System.out), 1 << 16));
+		for (int i = 0; i < width * height; ++i) {
+			out.print(Endorsements.endorse(pixels[i]));
+			out.print(' ');
+		}
+		out.println();
+		out.flush();
+	}
+
+	/* thrown rather than exiting, so that a bad run under ExperimentDriver
+	   is recorded as failed and the sweep carries on */
+	static IllegalArgumentException usage() {
+		return new IllegalArgumentException(
+			"usage: FFTest [-span|-label] [-8] [-threads N] [width height] filename");
+	}
+
+	static void printRegions(@Approx int[] pixels, int width, int height,
+	                         boolean eight, int threads) {
+		ComponentLabeler cl = new ComponentLabeler(pixels, width, height, eight);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		int regions;
+		try {
+			regions = cl.label(pool);
+		} finally {
+			pool.shutdown();
+		}
+
+		PrintWriter out = new PrintWriter(new BufferedWriter(
+			new OutputStreamWriter(System.out), 1 << 16));
+		int[] labels = cl.labels();
+		for (int i = 0; i < width * height; ++i) {
+			out.print(labels[i]);
+			out.print(' ');
+		}
+		out.println();
+		// region: color area minX minY maxX maxY
+		for (int r = 0; r < regions; ++r) {
+			out.println("region " + r + ": " + Endorsements.endorse(cl.color(r)) +
+			            " " + cl.area(r) + " " + cl.minX(r) + " " + cl.minY(r) +
+			            " " + cl.maxX(r) + " " + cl.maxY(r));
 		}
-		System.out.println("");
+		out.flush();
 	}
 }
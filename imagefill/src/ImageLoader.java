@@ -0,0 +1,153 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import enerj.lang.*;
+
+/** Loads a fill input into a flat, row-major buffer (pixel (x, y) is
+    pixels[y*width + x]), taking the dimensions from the file itself.
+
+    Two formats are understood:
+    <ul>
+    <li> the ASCII grid of input.txt: one line per row, one character
+         per pixel with value c - '0', optional '\r' before each '\n'
+         and an optional final newline;
+    <li> binary PGM ("P5"): 8-bit samples, or 16-bit big-endian ones
+         when maxval exceeds 255.
+    </ul>
+    The file is memory-mapped and copied out in blocks, not read a
+    character at a time.
+*/
+public class ImageLoader {
+	static final int BLOCK = 1 << 16;
+
+	public final int width;
+	public final int height;
+	public final @Approx int[] pixels;
+
+	private ImageLoader(int width, int height, @Approx int[] pixels) {
+		this.width = width;
+		this.height = height;
+		this.pixels = pixels;
+	}
+
+	public static ImageLoader load(String filename) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			long size = channel.size();
+			if (size > Integer.MAX_VALUE)
+				throw new IOException(filename + ": too large to map");
+			MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if (size >= 2 && buf.get(0) == 'P' && buf.get(1) == '5')
+				return loadPGM(filename, buf);
+			return loadGrid(filename, buf);
+		} finally {
+			file.close();
+		}
+	}
+
+	/* The first line gives the width; every other line must match it. */
+	static ImageLoader loadGrid(String filename, MappedByteBuffer buf) throws IOException {
+		int size = buf.limit();
+		int width = 0;
+		while (width < size && buf.get(width) != '\n')
+			width++;
+		boolean crlf = width > 0 && buf.get(width - 1) == '\r';
+		if (crlf)
+			width--;
+		int lineLength = width + (crlf ? 2 : 1);
+		int height = width == 0 ? 0 : (size + lineLength - 1) / lineLength;
+		if (width == 0 || (long) lineLength * (height - 1) + width > size)
+			throw new IOException(filename + ": not a rectangular grid");
+
+		@Approx int[] pixels = new @Approx int[width * height];
+		byte[] block = new byte[BLOCK];
+		int x = 0;
+		int i = 0;
+		int line = 0;
+		for (int pos = 0; pos < size; pos += BLOCK) {
+			int n = Math.min(BLOCK, size - pos);
+			buf.get(block, 0, n);
+			for (int k = 0; k < n; k++) {
+				int c = block[k];
+				if (c == '\n') {
+					if (x != width)
+						throw new IOException(filename + ": line " + (line + 1) +
+						                      " has " + x + " pixels, not " + width);
+					x = 0;
+					line++;
+				} else if (c != '\r') {
+					if (x == width)
+						throw new IOException(filename + ": line " + (line + 1) +
+						                      " is longer than " + width);
+					pixels[i++] = c - '0';
+					x++;
+				}
+			}
+		}
+		if (i != width * height)
+			throw new IOException(filename + ": not a rectangular grid");
+		return new ImageLoader(width, height, pixels);
+	}
+
+	static ImageLoader loadPGM(String filename, MappedByteBuffer buf) throws IOException {
+		buf.position(2);
+		int width = headerInt(filename, buf);
+		int height = headerInt(filename, buf);
+		int maxval = headerInt(filename, buf);
+		if (maxval == 0 || maxval > 65535)
+			throw new IOException(filename + ": bad PGM header");
+		headerByte(filename, buf);   // the single whitespace before the samples
+		int bytes = maxval > 255 ? 2 : 1;
+		if ((long) width * height * bytes > buf.remaining())
+			throw new IOException(filename + ": truncated PGM");
+
+		@Approx int[] pixels = new @Approx int[width * height];
+		byte[] block = new byte[BLOCK];
+		int i = 0;
+		int total = width * height * bytes;
+		for (int pos = 0; pos < total; pos += BLOCK) {
+			int n = Math.min(BLOCK, total - pos);
+			buf.get(block, 0, n);
+			if (bytes == 1) {
+				for (int k = 0; k < n; k++)
+					pixels[i++] = block[k] & 0xff;
+			} else {
+				for (int k = 0; k < n; k += 2)
+					pixels[i++] = (block[k] & 0xff) << 8 | (block[k+1] & 0xff);
+			}
+		}
+		return new ImageLoader(width, height, pixels);
+	}
+
+	/* Next decimal field of a PGM header, skipping whitespace and
+	   # comments. */
+	private static int headerInt(String filename, MappedByteBuffer buf) throws IOException {
+		int c = headerByte(filename, buf);
+		while (c == '#' || Character.isWhitespace(c)) {
+			if (c == '#')
+				while (headerByte(filename, buf) != '\n')
+					;
+			c = headerByte(filename, buf);
+		}
+		if (c < '0' || c > '9')
+			throw new IOException(filename + ": bad PGM header");
+		int value = 0;
+		while (c >= '0' && c <= '9') {
+			if (value > (Integer.MAX_VALUE - (c - '0')) / 10)
+				throw new IOException(filename + ": bad PGM header");
+			value = value * 10 + (c - '0');
+			c = headerByte(filename, buf);
+		}
+		buf.position(buf.position() - 1);
+		return value;
+	}
+
+	/* A header that ends before the samples is as bad as a garbled one. */
+	private static int headerByte(String filename, MappedByteBuffer buf) throws IOException {
+		if (!buf.hasRemaining())
+			throw new IOException(filename + ": bad PGM header");
+		return buf.get();
+	}
+}
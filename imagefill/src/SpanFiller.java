@@ -0,0 +1,121 @@
+import enerj.lang.*;
+
+/** Scanline (span) flood filler over a flat, row-major pixel buffer:
+    pixel (x, y) is pixels[y*width + x].
+
+    Pending work is a stack of spans (xl, xr, y): pixels of row y in
+    xl..xr that may border the region. Popping a span fills every run of
+    the seed color touching it, extends the runs sideways, and pushes the
+    rows above and below each run (widened by one pixel on each side for
+    8-connectivity). The spans live interleaved in one int[] that grows by
+    doubling. All loops run over buffer indices kept inside the image, so
+    there are no per-pixel coordinate checks.
+*/
+public class SpanFiller {
+    static final int SPAN = 3;          // ints per stacked span: xl, xr, y
+
+    final @Approx int[] pixels;
+    final int width;
+    final int height;
+    @Approx int targetColor;
+    boolean eightConnected;
+    int[] stack = new int[SPAN * 256];  // will be increased as needed
+    int stackSize;                      // in ints
+
+    public SpanFiller(@Approx int[] pixels, int width, int height,
+                      @Approx int targetColor, boolean eightConnected) {
+        if (pixels.length < width * height)
+            throw new IllegalArgumentException("buffer smaller than " + width + "x" + height);
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+        this.targetColor = targetColor;
+        this.eightConnected = eightConnected;
+    }
+
+    /** Fills the region of (x, y)'s color containing (x, y) with the
+        target color. Returns false if there was nothing to fill. */
+    public boolean fill(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height)
+            return false;
+        @Approx int color = pixels[y*width + x];
+        if (Endorsements.endorse(color == targetColor))
+            return false;
+
+        int grow = eightConnected ? 1 : 0;
+        stackSize = 0;
+        push(x, x, y);
+        while (stackSize > 0) {
+            stackSize -= SPAN;
+            int xl = stack[stackSize];
+            int xr = stack[stackSize + 1];
+            int sy = stack[stackSize + 2];
+            int row = sy * width;
+            int end = row + xr;
+
+            int i = row + xl;
+            while (i <= end) {
+                if (Endorsements.endorse(pixels[i] != color)) {
+                    i++;
+                    continue;
+                }
+                int l = i;
+                if (i == row + xl)      // only a run touching xl can reach left of it
+                    while (l > row && Endorsements.endorse(pixels[l-1] == color))
+                        l--;
+                int r = i;
+                int last = row + width - 1;
+                while (r < last && Endorsements.endorse(pixels[r+1] == color))
+                    r++;
+
+                for (int k = l; k <= r; k++)
+                    pixels[k] = targetColor;
+
+                int nl = Math.max(l - row - grow, 0);
+                int nr = Math.min(r - row + grow, width - 1);
+                if (sy > 0)
+                    push(nl, nr, sy - 1);
+                if (sy < height - 1)
+                    push(nl, nr, sy + 1);
+                i = r + 2;              // r+1 is not the color, or off the row
+            }
+        }
+        return true;
+    }
+
+    final void push(int xl, int xr, int y) {
+        if (stackSize + SPAN > stack.length) {
+            int[] newStack = new int[stack.length * 2];
+            System.arraycopy(stack, 0, newStack, 0, stackSize);
+            stack = newStack;
+        }
+        stack[stackSize] = xl;
+        stack[stackSize + 1] = xr;
+        stack[stackSize + 2] = y;
+        stackSize += SPAN;
+    }
+
+    /** Row-major copy of a column-major (FloodFiller) image. */
+    public static @Approx int[] toRowMajor(@Approx int[][] image) {
+        int width = image.length;
+        int height = image[0].length;
+        @Approx int[] pixels = new @Approx int[width * height];
+        for (int x = 0; x < width; x++) {
+            @Approx int[] column = image[x];
+            for (int y = 0, i = x; y < height; y++, i += width)
+                pixels[i] = column[y];
+        }
+        return pixels;
+    }
+
+    /** Copies a row-major buffer back into a column-major image. */
+    public static void toColumnMajor(@Approx int[] pixels, @Approx int[][] image) {
+        int width = image.length;
+        int height = image[0].length;
+        for (int x = 0; x < width; x++) {
+            @Approx int[] column = image[x];
+            for (int y = 0, i = x; y < height; y++, i += width)
+                column[y] = pixels[i];
+        }
+    }
+}
@@ -0,0 +1,12 @@
+#!/bin/sh
+enerjdir=../../enerj
+
+# The pairs counter reports triangle pairs tested per second; the gc
+# profiler adds the allocation rate (gc.alloc.rate.norm is bytes per
+# invocation; of the pair tests only batchParallel should allocate, a
+# context per task, and of the mesh ones only build).
+# Extra arguments go to JMH, e.g. "./run.sh batch -p pairs=1000000" or
+# "./run.sh MeshCollision -p triangles=10000".
+# FastMathBenchmark's accuracy counterpart is a plain program:
+#   java -cp target/benchmarks.jar:$enerjdir/build/enerj.jar com.jme.math.FastMathAccuracy
+java -cp target/benchmarks.jar:$enerjdir/build/enerj.jar org.openjdk.jmh.Main -prof gc "$@"
@@ -0,0 +1,125 @@
+package com.jme.intersection;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.jme.math.Vector3f;
+
+import enerj.lang.*;
+
+/**
+	Tests "pairs" random triangle pairs per invocation, with every
+	coordinate uniform in [0, 1) as in JMEIntTest, one pair at a time
+	through the Vector3f and float[] forms of Intersection.intersection
+	and in bulk through BatchIntersection. A hundred million pairs would
+	take over 30 GB in those three layouts, so at most DATA pairs are
+	generated and larger counts go over them again.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class IntersectionBenchmark
+{
+	static final int DATA = 1000000;
+
+	@Param({"10000", "1000000", "100000000"})
+	public int pairs;
+
+	private int n;
+	private @Approx Vector3f[] vectors;
+	private @Approx float[] tris;
+	private TriangleArrays a, b;
+	private long[] bits;
+	private boolean[] hits;
+	private IntersectionContext context;
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setup()
+	{
+		n = Math.min(pairs, DATA);
+		Random rand = new Random(1234);
+		tris = new @Approx float[18 * n];
+		for (int i = 0; i < tris.length; i++)
+			tris[i] = rand.nextFloat();
+		vectors = new @Approx Vector3f[6 * n];
+		for (int v = 0; v < vectors.length; v++)
+			vectors[v] = new Vector3f(tris[3 * v], tris[3 * v + 1], tris[3 * v + 2]);
+		a = TriangleArrays.fromInterleaved(tris, 0, 18, n);
+		b = TriangleArrays.fromInterleaved(tris, 9, 18, n);
+		bits = new long[(n + 63) / 64];
+		hits = new boolean[n];
+		context = new IntersectionContext();
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public int vector3f(PairCounter counter)
+	{
+		@Approx Vector3f[] v = vectors;
+		int hit = 0;
+		for (int done = 0; done < pairs; done += n) {
+			for (int i = 0; i < 6 * n; i += 6) {
+				if (Endorsements.endorse(Intersection.intersection(v[i], v[i + 1],
+						v[i + 2], v[i + 3], v[i + 4], v[i + 5])))
+					hit++;
+			}
+		}
+		counter.pairs += pairs;
+		return hit;
+	}
+
+	@Benchmark
+	public int flat(PairCounter counter)
+	{
+		int hit = 0;
+		for (int done = 0; done < pairs; done += n) {
+			for (int i = 0; i < 18 * n; i += 18) {
+				if (Endorsements.endorse(Intersection.intersection(tris, i, tris,
+						i + 9, context)))
+					hit++;
+			}
+		}
+		counter.pairs += pairs;
+		return hit;
+	}
+
+	@Benchmark
+	public long[] batch(PairCounter counter)
+	{
+		for (int done = 0; done < pairs; done += n)
+			BatchIntersection.intersect(a, b, 0, n, bits, context);
+		counter.pairs += pairs;
+		return bits;
+	}
+
+	@Benchmark
+	public boolean[] batchBoolean(PairCounter counter)
+	{
+		for (int done = 0; done < pairs; done += n)
+			BatchIntersection.intersect(a, b, 0, n, hits, context);
+		counter.pairs += pairs;
+		return hits;
+	}
+
+	@Benchmark
+	public long[] batchParallel(PairCounter counter)
+	{
+		for (int done = 0; done < pairs; done += n)
+			BatchIntersection.intersect(a, b, bits, pool);
+		counter.pairs += pairs;
+		return bits;
+	}
+}
@@ -0,0 +1,57 @@
+package com.jme.intersection;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import enerj.lang.*;
+
+/**
+	MeshCollisionBenchmark's smallest meshes with every triangle of one
+	tested against every triangle of the other, as the old
+	meshIntersection stub in Intersection did; larger sizes would take
+	hours per invocation.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MeshBruteForceBenchmark
+{
+	@Param({"10000"})
+	public int triangles;
+
+	private @Approx float[] va, vb;
+	private int[] indices;
+	private IntersectionContext context;
+
+	@Setup
+	public void setup()
+	{
+		Random rand = new Random(1234);
+		va = Meshes.sphereVertices(triangles, 0, 0, 0, 1, rand);
+		vb = Meshes.sphereVertices(triangles, 0.7f, 0.3f, 0.1f, 1, rand);
+		indices = Meshes.sphereIndices(triangles);
+		context = new IntersectionContext();
+	}
+
+	@Benchmark
+	public int collide(PairCounter counter)
+	{
+		int[] idx = indices;
+		int n = idx.length, hits = 0;
+		for (int i = 0; i < n; i += 3) {
+			for (int j = 0; j < n; j += 3) {
+				if (Endorsements.endorse(Intersection.intersection(va, 3 * idx[i],
+						3 * idx[i + 1], 3 * idx[i + 2], vb, 3 * idx[j],
+						3 * idx[j + 1], 3 * idx[j + 2], context)))
+					hits++;
+			}
+		}
+		counter.pairs += (double) (n / 3) * (n / 3);
+		return hits;
+	}
+}
@@ -0,0 +1,71 @@
+package com.jme.intersection;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import enerj.lang.*;
+
+/**
+	Two overlapping spheres of "triangles" triangles each, about a fifth
+	of their surfaces in contact: the cost of building one CollisionTree,
+	refitting it, and colliding the two. MeshBruteForceBenchmark tests
+	every pair of the smallest size for comparison.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MeshCollisionBenchmark
+{
+	@Param({"10000", "100000", "1000000"})
+	public int triangles;
+
+	private @Approx float[] va, vb;
+	private int[] indices;
+	private CollisionTree a, b;
+	private CollisionResults results;
+	private IntersectionContext context;
+
+	@Setup
+	public void setup()
+	{
+		Random rand = new Random(1234);
+		va = Meshes.sphereVertices(triangles, 0, 0, 0, 1, rand);
+		vb = Meshes.sphereVertices(triangles, 0.7f, 0.3f, 0.1f, 1, rand);
+		indices = Meshes.sphereIndices(triangles);
+		a = new CollisionTree(va, indices);
+		b = new CollisionTree(vb, indices);
+		results = new CollisionResults();
+		context = new IntersectionContext();
+	}
+
+	@Benchmark
+	public CollisionTree build()
+	{
+		return new CollisionTree(va, indices);
+	}
+
+	@Benchmark
+	public CollisionTree refit()
+	{
+		b.refit();
+		return b;
+	}
+
+	@Benchmark
+	public int collide()
+	{
+		results.clear();
+		return MeshCollision.collide(a, b, results, context);
+	}
+
+	@Benchmark
+	public boolean intersects()
+	{
+		return MeshCollision.intersects(a, b, context);
+	}
+}
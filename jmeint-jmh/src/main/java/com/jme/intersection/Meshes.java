@@ -0,0 +1,61 @@
+package com.jme.intersection;
+
+import java.util.Random;
+
+import enerj.lang.*;
+
+/**
+	Test meshes for the collision benchmarks.
+*/
+final class Meshes
+{
+	private Meshes() {}
+
+	/**
+		A closed latitude-longitude sphere of about the given number of
+		triangles, its radius jittered by up to 1% per vertex so that
+		no two spheres' triangles meet exactly edge on.
+	*/
+	static @Approx float[] sphereVertices(int triangles, float cx, float cy,
+			float cz, float r, Random rand)
+	{
+		int rings = rings(triangles), segments = 2 * rings;
+		@Approx float[] v = new @Approx float[3 * (rings + 1) * (segments + 1)];
+		int k = 0;
+		for (int i = 0; i <= rings; i++) {
+			double theta = Math.PI * i / rings;
+			for (int j = 0; j <= segments; j++) {
+				double phi = 2 * Math.PI * j / segments;
+				double jr = r * (1 + 0.01 * rand.nextDouble());
+				v[k++] = cx + (float) (jr * Math.sin(theta) * Math.cos(phi));
+				v[k++] = cy + (float) (jr * Math.cos(theta));
+				v[k++] = cz + (float) (jr * Math.sin(theta) * Math.sin(phi));
+			}
+		}
+		return v;
+	}
+
+	static int[] sphereIndices(int triangles)
+	{
+		int rings = rings(triangles), segments = 2 * rings;
+		int[] idx = new int[6 * rings * segments];
+		int k = 0;
+		for (int i = 0; i < rings; i++) {
+			for (int j = 0; j < segments; j++) {
+				int a = i * (segments + 1) + j, b = a + segments + 1;
+				idx[k++] = a;
+				idx[k++] = b;
+				idx[k++] = a + 1;
+				idx[k++] = a + 1;
+				idx[k++] = b;
+				idx[k++] = b + 1;
+			}
+		}
+		return idx;
+	}
+
+	private static int rings(int triangles)
+	{
+		return Math.max(2, (int) Math.round(Math.sqrt(triangles / 4.0)));
+	}
+}
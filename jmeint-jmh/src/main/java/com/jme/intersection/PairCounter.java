@@ -0,0 +1,25 @@
+package com.jme.intersection;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+	Secondary JMH result that accumulates the triangle pairs each
+	invocation tests, so the "pairs" line of the report is pairs/s rather
+	than invocations/s.
+*/
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class PairCounter
+{
+	public double pairs;
+
+	@Setup(Level.Iteration)
+	public void clear()
+	{
+		pairs = 0;
+	}
+}
@@ -0,0 +1,82 @@
+package com.jme.math;
+
+import java.util.Random;
+
+/**
+	Measures the error of FastMath's approximations against java.lang.Math
+	computed in double and rounded to float: the largest error in ulps of
+	the rounded result (for invSqrtFast, also relative), and the mean.
+
+	java -cp target/benchmarks.jar:enerj.jar com.jme.math.FastMathAccuracy [samples]
+
+	sinFast and cosFast are compared with the sine and cosine of the angle
+	they reduce (reduceSinAngle, or % TWO_PI), over [-100, 100]; the
+	inverse trig functions over their domains and atanFast over all
+	finite floats; invSqrtFast over all positive normal floats.
+*/
+public class FastMathAccuracy
+{
+	private double max, sum, worst;
+	private long count;
+	private final String name;
+
+	private FastMathAccuracy(String name)
+	{
+		this.name = name;
+	}
+
+	private void add(float x, float got, double exact)
+	{
+		float rounded = (float) exact;
+		double ulps = got == rounded ? 0 : Math.abs(got - exact) / Math.ulp(rounded);
+		sum += ulps;
+		count++;
+		if (ulps > max) {
+			max = ulps;
+			worst = x;
+		}
+	}
+
+	private void print()
+	{
+		System.out.printf("%-12s max %10.2f ulp (at %s), mean %.3f ulp over %d%n",
+				name, max, (float) worst, sum / count, count);
+	}
+
+	public static void main(String[] args)
+	{
+		int samples = args.length > 0 ? Integer.parseInt(args[0]) : 10000000;
+		Random rand = new Random(1234);
+		FastMathAccuracy sin = new FastMathAccuracy("sinFast");
+		FastMathAccuracy cos = new FastMathAccuracy("cosFast");
+		FastMathAccuracy atan = new FastMathAccuracy("atanFast");
+		FastMathAccuracy asin = new FastMathAccuracy("asinFast");
+		FastMathAccuracy acos = new FastMathAccuracy("acosFast");
+		FastMathAccuracy invSqrt = new FastMathAccuracy("invSqrtFast");
+		double relative = 0;
+		for (int i = 0; i < samples; i++) {
+			float x = (rand.nextFloat() * 2 - 1) * 100;
+			sin.add(x, FastMath.sinFast(x), Math.sin(FastMath.reduceSinAngle(x)));
+			cos.add(x, FastMath.cosFast(x), Math.cos(x % FastMath.TWO_PI));
+
+			float u = rand.nextFloat() * 2 - 1;
+			asin.add(u, FastMath.asinFast(u), Math.asin(u));
+			acos.add(u, FastMath.acosFast(u), Math.acos(u));
+
+			float r = Float.intBitsToFloat(rand.nextInt(0x7f800000) | (rand.nextInt() & 0x80000000));
+			atan.add(r, FastMath.atanFast(r), Math.atan(r));
+
+			float p = Float.intBitsToFloat(0x00800000 + rand.nextInt(0x7f000000));
+			double exact = 1 / Math.sqrt(p);
+			invSqrt.add(p, FastMath.invSqrtFast(p), exact);
+			relative = Math.max(relative, Math.abs(FastMath.invSqrtFast(p) - exact) / exact);
+		}
+		sin.print();
+		cos.print();
+		atan.print();
+		asin.print();
+		acos.print();
+		invSqrt.print();
+		System.out.printf("invSqrtFast  max relative error %.3g%n", relative);
+	}
+}
@@ -0,0 +1,133 @@
+package com.jme.math;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+	Each FastMath function over INPUTS arguments per invocation, through
+	the Math-backed method ("math") and its *Fast approximation ("fast"),
+	so the scores are calls per second. The benchmark JVM runs without
+	jme.fastMath, so the plain methods are the Math ones. FastMathAccuracy
+	reports the approximations' errors.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@OperationsPerInvocation(FastMathBenchmark.INPUTS)
+public class FastMathBenchmark
+{
+	static final int INPUTS = 1024;
+
+	private float[] angles, units, reals, positives;
+
+	@Setup
+	public void setup()
+	{
+		Random rand = new Random(1234);
+		angles = new float[INPUTS];
+		units = new float[INPUTS];
+		reals = new float[INPUTS];
+		positives = new float[INPUTS];
+		for (int i = 0; i < INPUTS; i++) {
+			angles[i] = (rand.nextFloat() * 2 - 1) * 4 * FastMath.PI;
+			units[i] = rand.nextFloat() * 2 - 1;
+			reals[i] = (rand.nextFloat() * 2 - 1) * 10;
+			positives[i] = rand.nextFloat() * 100 + 1e-3f;
+		}
+	}
+
+	@Benchmark
+	public float sinMath()
+	{
+		float sum = 0;
+		for (float x : angles)
+			sum += FastMath.sin(x);
+		return sum;
+	}
+
+	@Benchmark
+	public float sinFast()
+	{
+		float sum = 0;
+		for (float x : angles)
+			sum += FastMath.sinFast(x);
+		return sum;
+	}
+
+	@Benchmark
+	public float cosMath()
+	{
+		float sum = 0;
+		for (float x : angles)
+			sum += FastMath.cos(x);
+		return sum;
+	}
+
+	@Benchmark
+	public float cosFast()
+	{
+		float sum = 0;
+		for (float x : angles)
+			sum += FastMath.cosFast(x);
+		return sum;
+	}
+
+	@Benchmark
+	public float atanMath()
+	{
+		float sum = 0;
+		for (float x : reals)
+			sum += FastMath.atan(x);
+		return sum;
+	}
+
+	@Benchmark
+	public float atanFast()
+	{
+		float sum = 0;
+		for (float x : reals)
+			sum += FastMath.atanFast(x);
+		return sum;
+	}
+
+	@Benchmark
+	public float acosMath()
+	{
+		float sum = 0;
+		for (float x : units)
+			sum += FastMath.acos(x);
+		return sum;
+	}
+
+	@Benchmark
+	public float acosFast()
+	{
+		float sum = 0;
+		for (float x : units)
+			sum += FastMath.acosFast(x);
+		return sum;
+	}
+
+	@Benchmark
+	public float invSqrtMath()
+	{
+		float sum = 0;
+		for (float x : positives)
+			sum += FastMath.invSqrt(x);
+		return sum;
+	}
+
+	@Benchmark
+	public float invSqrtFast()
+	{
+		float sum = 0;
+		for (float x : positives)
+			sum += FastMath.invSqrtFast(x);
+		return sum;
+	}
+}
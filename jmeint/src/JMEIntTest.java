@@ -1,4 +1,5 @@
 import com.jme.intersection.Intersection;
+import com.jme.intersection.IntersectionContext;
 import com.jme.math.Vector3f;
 
 import java.util.Random;
@@ -6,21 +7,42 @@ import enerj.lang.*;
 
 public class JMEIntTest {
 	public static Random rand;
-	public static @Approx Vector3f randvec() {
-		return new @Approx Vector3f(
+	public static @Approx Vector3f randvec(@Approx Vector3f store) {
+		return store.set(
 			rand.nextFloat(), rand.nextFloat(), rand.nextFloat()
 		);
 	}
+	// Both triangles of a test, as 18 floats, in the order randvec()
+	// would produce them.
+	public static void randtris(@Approx float[] tris) {
+		for (int i = 0; i < tris.length; ++i)
+			tris[i] = rand.nextFloat();
+	}
+
+	// With -flat, tests go through the float[] API instead; the
+	// output is the same.
     public static void main(String[] argv) {
+		boolean flat = argv.length > 0 && argv[0].equals("-flat");
 	
 		// Use a constant seed so we operate deterministically.
 		rand = new Random(1234); 
 		
+		@Approx float[] tris = new @Approx float[18];
+		IntersectionContext context = new IntersectionContext();
+		@Approx Vector3f[] v = new @Approx Vector3f[6];
+		for (int i = 0; i < v.length; ++i)
+			v[i] = new @Approx Vector3f();
 		for (int i = 0; i <= 100; ++i) {
-			@Approx boolean isec = Intersection.intersection(
-				randvec(), randvec(), randvec(),
-				randvec(), randvec(), randvec()
-			);
+			@Approx boolean isec;
+			if (flat) {
+				randtris(tris);
+				isec = Intersection.intersection(tris, 0, tris, 9, context);
+			} else {
+				isec = Intersection.intersection(
+					randvec(v[0]), randvec(v[1]), randvec(v[2]),
+					randvec(v[3]), randvec(v[4]), randvec(v[5])
+				);
+			}
 			if (Endorsements.endorse(isec)) {
 				System.out.print("1 ");
 			} else {
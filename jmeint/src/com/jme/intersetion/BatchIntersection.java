@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2003-2009 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jme.intersection;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import enerj.lang.*;
+
+/**
+ * <code>BatchIntersection</code> tests triangle a[i] against triangle b[i]
+ * for every i of a range, with the triangles in {@link TriangleArrays}.
+ * Results go to a <code>boolean[]</code> or to a bitset, bit i of a
+ * <code>long[]</code> (word i / 64, bit i % 64) for pair i.
+ * <p>
+ * Each pair is gathered into the context and put through the same test
+ * as {@link Intersection}, so results match it pair for pair. A separate
+ * branch-free pass over the plane-distance early-out was tried and made
+ * the batch slower than testing interleaved triangles one at a time: the
+ * early-out does not vectorize and its result still has to be branched
+ * on afterwards.
+ * <p>
+ * The sequential methods use a caller-owned {@link IntersectionContext};
+ * the parallel ones give each task its own and split the pairs at
+ * multiples of 64, so that no two tasks write the same bitset word.
+ */
+public final class BatchIntersection {
+
+	/**
+	 * Smallest share of the pairs a parallel task takes; a multiple of 64.
+	 */
+	static final int GRAIN = 8192;
+
+	private BatchIntersection() {
+	}
+
+	/**
+	 * Sets hits[i] for i in from..to-1.
+	 */
+	public static void intersect(TriangleArrays a, TriangleArrays b, int from,
+			int to, boolean[] hits, IntersectionContext context) {
+		check(a, b, from, to);
+		for (int i = from; i < to; i++)
+			hits[i] = test(a, b, i, context);
+		context.tests += to - from;
+	}
+
+	/**
+	 * Sets or clears bit i of bits for i in from..to-1, leaving the other
+	 * bits alone.
+	 */
+	public static void intersect(TriangleArrays a, TriangleArrays b, int from,
+			int to, long[] bits, IntersectionContext context) {
+		check(a, b, from, to);
+		for (int i = from; i < to; i++) {
+			if (test(a, b, i, context))
+				bits[i >>> 6] |= 1L << i;
+			else
+				bits[i >>> 6] &= ~(1L << i);
+		}
+		context.tests += to - from;
+	}
+
+	/**
+	 * Tests all a.count pairs on the pool.
+	 */
+	public static void intersect(TriangleArrays a, TriangleArrays b,
+			boolean[] hits, ForkJoinPool pool) {
+		pool.invoke(new Pairs(a, b, hits, null, 0, a.count));
+	}
+
+	/**
+	 * Tests all a.count pairs on the pool; bits needs (a.count + 63) / 64
+	 * words.
+	 */
+	public static void intersect(TriangleArrays a, TriangleArrays b,
+			long[] bits, ForkJoinPool pool) {
+		pool.invoke(new Pairs(a, b, null, bits, 0, a.count));
+	}
+
+	/**
+	 * The number of set bits among the first count of bits.
+	 */
+	public static int count(long[] bits, int count) {
+		int n = 0;
+		for (int w = 0; w < count >>> 6; w++)
+			n += Long.bitCount(bits[w]);
+		if ((count & 63) != 0)
+			n += Long.bitCount(bits[count >>> 6] & ((1L << count) - 1));
+		return n;
+	}
+
+	private static void check(TriangleArrays a, TriangleArrays b, int from, int to) {
+		if (from < 0 || to > a.count || to > b.count || from > to)
+			throw new IndexOutOfBoundsException("pairs " + from + ".." + to
+					+ " of " + a.count + " and " + b.count);
+	}
+
+	/**
+	 * Intersection.test for pair i, gathered into the context.
+	 */
+	private static boolean test(TriangleArrays a, TriangleArrays b, int i,
+			IntersectionContext context) {
+		@Approx float[] pair = context.pair;
+		a.get(i, pair, 0);
+		b.get(i, pair, 9);
+		boolean hit = Endorsements.endorse(Intersection.test(pair, 0, 3, 6,
+				pair, 9, 12, 15, context.interval));
+		if (hit)
+			context.hits++;
+		return hit;
+	}
+
+	static final class Pairs extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final TriangleArrays a, b;
+		private final boolean[] hits;
+		private final long[] bits;
+		private final int from, to;
+
+		Pairs(TriangleArrays a, TriangleArrays b, boolean[] hits, long[] bits,
+				int from, int to) {
+			this.a = a;
+			this.b = b;
+			this.hits = hits;
+			this.bits = bits;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > GRAIN) {
+				int mid = (from + (to - from) / 2) & ~63;
+				if (mid <= from)
+					mid = from + 64;
+				invokeAll(new Pairs(a, b, hits, bits, from, mid),
+						new Pairs(a, b, hits, bits, mid, to));
+				return;
+			}
+			IntersectionContext context = new IntersectionContext();
+			if (bits != null)
+				intersect(a, b, from, to, bits, context);
+			else
+				intersect(a, b, from, to, hits, context);
+		}
+	}
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2003-2009 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jme.intersection;
+
+import java.util.Arrays;
+
+/**
+ * <code>CollisionResults</code> collects the intersecting triangle pairs
+ * {@link MeshCollision} finds: pair k is triangle getTriangleA(k) of the
+ * first mesh against triangle getTriangleB(k) of the second. Clear and
+ * reuse one to avoid reallocating its storage.
+ */
+public final class CollisionResults {
+
+	private int[] pairs = new int[32];
+
+	private int size;
+
+	/**
+	 * The number of pairs found.
+	 */
+	public int size() {
+		return size;
+	}
+
+	public int getTriangleA(int k) {
+		check(k);
+		return pairs[2 * k];
+	}
+
+	public int getTriangleB(int k) {
+		check(k);
+		return pairs[2 * k + 1];
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * The triangles of the first mesh that meet the second, each once, in
+	 * increasing order.
+	 */
+	public int[] getTrianglesA() {
+		return distinct(0);
+	}
+
+	/**
+	 * The triangles of the second mesh that meet the first, each once, in
+	 * increasing order.
+	 */
+	public int[] getTrianglesB() {
+		return distinct(1);
+	}
+
+	void add(int a, int b) {
+		if (2 * size + 2 > pairs.length)
+			pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+		pairs[2 * size] = a;
+		pairs[2 * size + 1] = b;
+		size++;
+	}
+
+	private int[] distinct(int side) {
+		int[] t = new int[size];
+		for (int k = 0; k < size; k++)
+			t[k] = pairs[2 * k + side];
+		Arrays.sort(t);
+		int n = 0;
+		for (int k = 0; k < size; k++)
+			if (n == 0 || t[k] != t[n - 1])
+				t[n++] = t[k];
+		return Arrays.copyOf(t, n);
+	}
+
+	private void check(int k) {
+		if (k < 0 || k >= size)
+			throw new IndexOutOfBoundsException("pair " + k + " of " + size);
+	}
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2003-2009 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jme.intersection;
+
+import enerj.lang.*;
+
+/**
+ * <code>CollisionTree</code> is an axis-aligned bounding box tree over the
+ * triangles of an indexed mesh: vertex v is (vertices[3v], vertices[3v+1],
+ * vertices[3v+2]) and triangle t is vertexes indices[3t], indices[3t+1],
+ * indices[3t+2]. Each node is split at the median triangle along the
+ * longest axis of its triangles' centers, down to leaves of at most
+ * MAX_LEAF triangles, so the tree is about log2(n / MAX_LEAF) deep.
+ * <p>
+ * The tree reads the vertex array it was built on. After the vertexes move,
+ * {@link #refit()} recomputes the boxes without rebuilding, which is all a
+ * rigidly moving or gently deforming mesh needs.
+ * <p>
+ * Nodes live in flat arrays. Node n's box is box[6n..6n+5], minimum x, y, z
+ * then maximum x, y, z. For a leaf, meta[2n] is the first of its
+ * meta[2n+1] entries of order[]; for an inner node, meta[2n] is its left
+ * child, the right one follows it, and meta[2n+1] is -1.
+ * 
+ * @see MeshCollision
+ */
+public final class CollisionTree {
+
+	/**
+	 * Most triangles in a leaf.
+	 */
+	public static final int MAX_LEAF = 4;
+
+	final @Approx float[] vertices;
+
+	final int[] indices;
+
+	final int[] order;
+
+	final float[] box;
+
+	final int[] meta;
+
+	private int nodeCount;
+
+	private int depth;
+
+	/* build scratch: the center of each triangle */
+	private float[] center;
+
+	/**
+	 * Builds the tree over the first triangleCount triangles of the mesh.
+	 */
+	public CollisionTree(@Approx float[] vertices, int[] indices, int triangleCount) {
+		if (triangleCount < 0 || 3 * triangleCount > indices.length)
+			throw new IllegalArgumentException(triangleCount + " triangles but "
+					+ indices.length + " indices");
+		this.vertices = vertices;
+		this.indices = indices;
+		order = new int[triangleCount];
+		int capacity = Math.max(1, 2 * triangleCount - 1);
+		box = new float[6 * capacity];
+		meta = new int[2 * capacity];
+		center = new float[3 * triangleCount];
+		for (int t = 0; t < triangleCount; t++) {
+			order[t] = t;
+			bounds(t, box, 0);
+			for (int a = 0; a < 3; a++)
+				center[3 * t + a] = 0.5f * (box[a] + box[3 + a]);
+		}
+		nodeCount = 1;
+		build(0, 0, triangleCount, 0);
+		center = null;
+	}
+
+	/**
+	 * Builds the tree over every triangle of the mesh.
+	 */
+	public CollisionTree(@Approx float[] vertices, int[] indices) {
+		this(vertices, indices, indices.length / 3);
+	}
+
+	public int getTriangleCount() {
+		return order.length;
+	}
+
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	/**
+	 * Recomputes every box from the current vertexes, children before
+	 * parents, keeping the tree's shape.
+	 */
+	public void refit() {
+		for (int node = nodeCount - 1; node >= 0; node--) {
+			int count = meta[2 * node + 1];
+			if (count >= 0) {
+				fit(node, meta[2 * node], count);
+			} else {
+				int o = 6 * node, l = 6 * meta[2 * node], r = l + 6;
+				for (int a = 0; a < 3; a++) {
+					box[o + a] = Math.min(box[l + a], box[r + a]);
+					box[o + 3 + a] = Math.max(box[l + 3 + a], box[r + 3 + a]);
+				}
+			}
+		}
+	}
+
+	private void build(int node, int first, int count, int level) {
+		depth = Math.max(depth, level);
+		fit(node, first, count);
+		if (count <= MAX_LEAF) {
+			meta[2 * node] = first;
+			meta[2 * node + 1] = count;
+			return;
+		}
+
+		// split at the median center along the axis they spread most on
+		int axis = 0;
+		float spread = -1;
+		for (int a = 0; a < 3; a++) {
+			float lo = Float.POSITIVE_INFINITY, hi = Float.NEGATIVE_INFINITY;
+			for (int k = first; k < first + count; k++) {
+				float c = center[3 * order[k] + a];
+				lo = Math.min(lo, c);
+				hi = Math.max(hi, c);
+			}
+			if (hi - lo > spread) {
+				spread = hi - lo;
+				axis = a;
+			}
+		}
+		int mid = first + count / 2;
+		select(first, first + count - 1, mid, axis);
+
+		int left = nodeCount;
+		nodeCount += 2;
+		meta[2 * node] = left;
+		meta[2 * node + 1] = -1;
+		build(left, first, mid - first, level + 1);
+		build(left + 1, mid, first + count - mid, level + 1);
+	}
+
+	/**
+	 * Reorders order[lo..hi] so that order[k] has the k-th smallest center
+	 * along axis, with none greater before it and none smaller after it.
+	 */
+	private void select(int lo, int hi, int k, int axis) {
+		int[] o = order;
+		while (hi > lo) {
+			float pivot = center[3 * o[(lo + hi) >>> 1] + axis];
+			int i = lo, j = hi;
+			while (i <= j) {
+				while (center[3 * o[i] + axis] < pivot)
+					i++;
+				while (center[3 * o[j] + axis] > pivot)
+					j--;
+				if (i <= j) {
+					int t = o[i];
+					o[i++] = o[j];
+					o[j--] = t;
+				}
+			}
+			if (k <= j)
+				hi = j;
+			else if (k >= i)
+				lo = i;
+			else
+				return;
+		}
+	}
+
+	/* node's box from order[first..first+count-1] */
+	private void fit(int node, int first, int count) {
+		int o = 6 * node;
+		for (int a = 0; a < 3; a++) {
+			box[o + a] = Float.POSITIVE_INFINITY;
+			box[o + 3 + a] = Float.NEGATIVE_INFINITY;
+		}
+		for (int k = first; k < first + count; k++) {
+			int i = 3 * order[k];
+			for (int c = 0; c < 3; c++) {
+				int v = 3 * indices[i + c];
+				for (int a = 0; a < 3; a++) {
+					float x = Endorsements.endorse(vertices[v + a]);
+					box[o + a] = Math.min(box[o + a], x);
+					box[o + 3 + a] = Math.max(box[o + 3 + a], x);
+				}
+			}
+		}
+	}
+
+	/* triangle t's box into b[o..o+5] */
+	private void bounds(int t, float[] b, int o) {
+		for (int a = 0; a < 3; a++) {
+			float x0 = Endorsements.endorse(vertices[3 * indices[3 * t] + a]);
+			float x1 = Endorsements.endorse(vertices[3 * indices[3 * t + 1] + a]);
+			float x2 = Endorsements.endorse(vertices[3 * indices[3 * t + 2] + a]);
+			b[o + a] = Math.min(x0, Math.min(x1, x2));
+			b[o + 3 + a] = Math.max(x0, Math.max(x1, x2));
+		}
+	}
+}
@@ -38,6 +38,7 @@ import com.jme.math.FastMath;
 import com.jme.math.TransformMatrix;
 import com.jme.math.Vector2f;
 import com.jme.math.Vector3f;
+import com.jme.math.VectorStack;
 
 import enerj.lang.*;
 
@@ -59,24 +60,6 @@ public class Intersection {
 	 */
 	public static final double EPSILON = 1e-12;
 
-	private static final @Approx Vector3f tempVa = new @Approx Vector3f();
-
-	private static final @Approx Vector3f tempVb = new @Approx Vector3f();
-
-	private static final @Approx Vector3f tempVc = new @Approx Vector3f();
-
-	private static final @Approx Vector3f tempVd = new @Approx Vector3f();
-
-	private static final @Approx Vector3f tempVe = new @Approx Vector3f();
-
-	private static final @Approx float[] tempFa = new @Approx float[2];
-
-	private static final @Approx float[] tempFb = new @Approx float[2];
-
-	private static final @Approx Vector2f tempV2a = new @Approx Vector2f();
-
-	private static final @Approx Vector2f tempV2b = new @Approx Vector2f();
-
 	/**
 	 * This is a <b>VERY </b> brute force method of detecting if two TriMesh
 	 * objects intersect.
@@ -125,6 +108,8 @@ public class Intersection {
 	 * This method tests for the intersection between two triangles defined by
 	 * their vertexes. Converted to java from C code found at
 	 * http://www.acm.org/jgt/papers/Moller97/tritri.html
+	 * Temporaries come from the calling thread's {@link VectorStack}, so
+	 * threads may test at once and a steady loop allocates nothing.
 	 * 
 	 * @param v0
 	 *            First triangle's first vertex.
@@ -142,15 +127,27 @@ public class Intersection {
 	 */
 	public static @Approx boolean intersection(@Approx Vector3f v0, @Approx Vector3f v1, @Approx Vector3f v2,
 			@Approx Vector3f u0, @Approx Vector3f u1, @Approx Vector3f u2) {
-		@Approx Vector3f e1 = tempVa;
-		@Approx Vector3f e2 = tempVb;
-		@Approx Vector3f n1 = tempVc;
-		@Approx Vector3f n2 = tempVd;
+		VectorStack stack = VectorStack.get();
+		stack.push();
+		try {
+			return intersection(v0, v1, v2, u0, u1, u2, stack);
+		} finally {
+			stack.pop();
+		}
+	}
+
+	/* the Vector3f form, its temporaries taken from stack */
+	private static @Approx boolean intersection(@Approx Vector3f v0, @Approx Vector3f v1, @Approx Vector3f v2,
+			@Approx Vector3f u0, @Approx Vector3f u1, @Approx Vector3f u2, VectorStack stack) {
+		@Approx Vector3f e1 = stack.approxVector3f();
+		@Approx Vector3f e2 = stack.approxVector3f();
+		@Approx Vector3f n1 = stack.approxVector3f();
+		@Approx Vector3f n2 = stack.approxVector3f();
 		@Approx float d1, d2;
 		@Approx float du0, du1, du2, dv0, dv1, dv2;
-		@Approx Vector3f d = tempVe;
-		@Approx float[] isect1 = tempFa;
-		@Approx float[] isect2 = tempFb;
+		@Approx Vector3f d = stack.approxVector3f();
+		@Approx float[] isect1 = stack.approxArray3();
+		@Approx float[] isect2 = stack.approxArray3();
 		@Approx float du0du1, du0du2, dv0dv1, dv0dv2;
 		short index;
 		@Approx float vp0, vp1, vp2;
@@ -257,19 +254,19 @@ public class Intersection {
 		}
 
 		/* compute interval for triangle 1 */
-		@Approx Vector3f abc = tempVa;
-		@Approx Vector2f x0x1 = tempV2a;
+		@Approx Vector3f abc = e1;
+		@Approx Vector2f x0x1 = stack.approxVector2f();
 		if (newComputeIntervals(vp0, vp1, vp2, dv0, dv1, dv2, dv0dv1, dv0dv2,
 				abc, x0x1)) {
-			return coplanarTriTri(n1, v0, v1, v2, u0, u1, u2);
+			return coplanarTriTri(n1, v0, v1, v2, u0, u1, u2, stack);
 		}
 
 		/* compute interval for triangle 2 */
-		@Approx Vector3f def = tempVb;
-		@Approx Vector2f y0y1 = tempV2b;
+		@Approx Vector3f def = e2;
+		@Approx Vector2f y0y1 = stack.approxVector2f();
 		if (newComputeIntervals(up0, up1, up2, du0, du1, du2, du0du1, du0du2,
 				def, y0y1)) {
-			return coplanarTriTri(n1, v0, v1, v2, u0, u1, u2);
+			return coplanarTriTri(n1, v0, v1, v2, u0, u1, u2, stack);
 		}
 
 		xx = x0x1.x * x0x1.y;
@@ -294,6 +291,312 @@ public class Intersection {
 		return true;		
 	}
 
+	/**
+	 * Tests two triangles stored as nine consecutive floats each (x, y, z
+	 * of the three vertexes) for intersection, like
+	 * {@link #intersection(Vector3f, Vector3f, Vector3f, Vector3f, Vector3f, Vector3f)}
+	 * but with its scratch state in a context the caller owns.
+	 * 
+	 * @param a
+	 *            buffer holding the first triangle.
+	 * @param aOffset
+	 *            index of the first triangle's first coordinate.
+	 * @param b
+	 *            buffer holding the second triangle; may be <code>a</code>.
+	 * @param bOffset
+	 *            index of the second triangle's first coordinate.
+	 * @param context
+	 *            scratch state, owned by the calling thread.
+	 * @return True if the two triangles intersect, false otherwise.
+	 */
+	public static @Approx boolean intersection(@Approx float[] a, int aOffset,
+			@Approx float[] b, int bOffset, IntersectionContext context) {
+		return intersection(a, aOffset, aOffset + 3, aOffset + 6, b, bOffset,
+				bOffset + 3, bOffset + 6, context);
+	}
+
+	/**
+	 * Tests two triangles for intersection, each given by the indexes of
+	 * its vertexes' x coordinates in a buffer of (x, y, z) triples, as for
+	 * an indexed mesh. The result is the one the <code>Vector3f</code>
+	 * form gives for the same coordinates.
+	 * 
+	 * @param a
+	 *            buffer holding the first triangle's vertexes.
+	 * @param v0
+	 *            index of the first triangle's first vertex.
+	 * @param v1
+	 *            index of the first triangle's second vertex.
+	 * @param v2
+	 *            index of the first triangle's third vertex.
+	 * @param b
+	 *            buffer holding the second triangle's vertexes; may be
+	 *            <code>a</code>.
+	 * @param u0
+	 *            index of the second triangle's first vertex.
+	 * @param u1
+	 *            index of the second triangle's second vertex.
+	 * @param u2
+	 *            index of the second triangle's third vertex.
+	 * @param context
+	 *            scratch state, owned by the calling thread.
+	 * @return True if the two triangles intersect, false otherwise.
+	 */
+	public static @Approx boolean intersection(@Approx float[] a, int v0, int v1, int v2,
+			@Approx float[] b, int u0, int u1, int u2, IntersectionContext context) {
+		@Approx boolean hit = test(a, v0, v1, v2, b, u0, u1, u2, context.interval);
+		context.tests++;
+		if (Endorsements.endorse(hit))
+			context.hits++;
+		return hit;
+	}
+
+	static @Approx boolean test(@Approx float[] a, int v0, int v1, int v2,
+			@Approx float[] b, int u0, int u1, int u2, @Approx float[] interval) {
+		@Approx float e1x, e1y, e1z, e2x, e2y, e2z;
+		@Approx float n1x, n1y, n1z, n2x, n2y, n2z;
+		@Approx float d1, d2;
+		@Approx float du0, du1, du2, dv0, dv1, dv2;
+		@Approx float du0du1, du0du2, dv0dv1, dv0dv2;
+		int index;
+		@Approx float bb, cc, max;
+		@Approx float xx, yy, xxyy, tmp;
+		@Approx float isect10, isect11, isect20, isect21;
+
+		/* compute plane equation of triangle(v0,v1,v2) */
+		e1x = a[v1] - a[v0];
+		e1y = a[v1 + 1] - a[v0 + 1];
+		e1z = a[v1 + 2] - a[v0 + 2];
+		e2x = a[v2] - a[v0];
+		e2y = a[v2 + 1] - a[v0 + 1];
+		e2z = a[v2 + 2] - a[v0 + 2];
+		n1x = e1y * e2z - e1z * e2y;
+		n1y = e1z * e2x - e1x * e2z;
+		n1z = e1x * e2y - e1y * e2x;
+		d1 = -(n1x * a[v0] + n1y * a[v0 + 1] + n1z * a[v0 + 2]);
+
+		/* signed distances of u0,u1,u2 to plane 1 */
+		du0 = n1x * b[u0] + n1y * b[u0 + 1] + n1z * b[u0 + 2] + d1;
+		du1 = n1x * b[u1] + n1y * b[u1 + 1] + n1z * b[u1 + 2] + d1;
+		du2 = n1x * b[u2] + n1y * b[u2 + 1] + n1z * b[u2 + 2] + d1;
+
+		/* coplanarity robustness check */
+		if (Endorsements.endorse(ApproxMath.abs(du0) < EPSILON))
+			du0 = 0.0f;
+		if (Endorsements.endorse(ApproxMath.abs(du1) < EPSILON))
+			du1 = 0.0f;
+		if (Endorsements.endorse(ApproxMath.abs(du2) < EPSILON))
+			du2 = 0.0f;
+		du0du1 = du0 * du1;
+		du0du2 = du0 * du2;
+
+		if (Endorsements.endorse(du0du1 > 0.0f && du0du2 > 0.0f)) {
+			return false;
+		}
+
+		/* compute plane of triangle (u0,u1,u2) */
+		e1x = b[u1] - b[u0];
+		e1y = b[u1 + 1] - b[u0 + 1];
+		e1z = b[u1 + 2] - b[u0 + 2];
+		e2x = b[u2] - b[u0];
+		e2y = b[u2 + 1] - b[u0 + 1];
+		e2z = b[u2 + 2] - b[u0 + 2];
+		n2x = e1y * e2z - e1z * e2y;
+		n2y = e1z * e2x - e1x * e2z;
+		n2z = e1x * e2y - e1y * e2x;
+		d2 = -(n2x * b[u0] + n2y * b[u0 + 1] + n2z * b[u0 + 2]);
+
+		/* signed distances of v0,v1,v2 to plane 2 */
+		dv0 = n2x * a[v0] + n2y * a[v0 + 1] + n2z * a[v0 + 2] + d2;
+		dv1 = n2x * a[v1] + n2y * a[v1 + 1] + n2z * a[v1 + 2] + d2;
+		dv2 = n2x * a[v2] + n2y * a[v2 + 1] + n2z * a[v2 + 2] + d2;
+
+		if (Endorsements.endorse(ApproxMath.abs(dv0) < EPSILON))
+			dv0 = 0.0f;
+		if (Endorsements.endorse(ApproxMath.abs(dv1) < EPSILON))
+			dv1 = 0.0f;
+		if (Endorsements.endorse(ApproxMath.abs(dv2) < EPSILON))
+			dv2 = 0.0f;
+
+		dv0dv1 = dv0 * dv1;
+		dv0dv2 = dv0 * dv2;
+
+		if (Endorsements.endorse(dv0dv1 > 0.0f && dv0dv2 > 0.0f)) {
+			return false; /* no intersection occurs */
+		}
+
+		/*
+		 * index the largest component of the direction of the intersection
+		 * line, n1 x n2
+		 */
+		max = ApproxMath.abs(n1y * n2z - n1z * n2y);
+		index = 0;
+		bb = ApproxMath.abs(n1z * n2x - n1x * n2z);
+		cc = ApproxMath.abs(n1x * n2y - n1y * n2x);
+		if (Endorsements.endorse(bb > max)) {
+			max = bb;
+			index = 1;
+		}
+		if (Endorsements.endorse(cc > max)) {
+			max = cc;
+			index = 2;
+		}
+
+		/* compute interval for triangle 1 */
+		if (newComputeIntervals(a[v0 + index], a[v1 + index], a[v2 + index], dv0,
+				dv1, dv2, dv0dv1, dv0dv2, interval, 0)) {
+			return coplanarTriTri(n1x, n1y, n1z, a, v0, v1, v2, b, u0, u1, u2);
+		}
+
+		/* compute interval for triangle 2 */
+		if (newComputeIntervals(b[u0 + index], b[u1 + index], b[u2 + index], du0,
+				du1, du2, du0du1, du0du2, interval, 5)) {
+			return coplanarTriTri(n1x, n1y, n1z, a, v0, v1, v2, b, u0, u1, u2);
+		}
+
+		xx = interval[3] * interval[4];
+		yy = interval[8] * interval[9];
+		xxyy = xx * yy;
+
+		tmp = interval[0] * xxyy;
+		isect10 = tmp + interval[1] * interval[4] * yy;
+		isect11 = tmp + interval[2] * interval[3] * yy;
+
+		tmp = interval[5] * xxyy;
+		isect20 = tmp + interval[6] * xx * interval[9];
+		isect21 = tmp + interval[7] * xx * interval[8];
+
+		if (Endorsements.endorse(isect10 > isect11)) {
+			tmp = isect10;
+			isect10 = isect11;
+			isect11 = tmp;
+		}
+		if (Endorsements.endorse(isect20 > isect21)) {
+			tmp = isect20;
+			isect20 = isect21;
+			isect21 = tmp;
+		}
+
+		if (Endorsements.endorse(isect11 < isect20 || isect21 < isect10)) {
+			return false;
+		}
+		return true;
+	}
+
+	/* newComputeIntervals, with abc and x0x1 going to out[o..o+4] */
+	private static boolean newComputeIntervals(@Approx float vv0, @Approx float vv1,
+			@Approx float vv2, @Approx float d0, @Approx float d1, @Approx float d2,
+			@Approx float d0d1, @Approx float d0d2, @Approx float[] out, int o) {
+		if (Endorsements.endorse(d0d1 > 0.0f)) {
+			intervals(vv2, vv0, vv1, d2, d0, d1, out, o);
+		} else if (Endorsements.endorse(d0d2 > 0.0f)) {
+			intervals(vv1, vv0, vv2, d1, d0, d2, out, o);
+		} else if (Endorsements.endorse(d1 * d2 > 0.0f || d0 != 0.0f)) {
+			intervals(vv0, vv1, vv2, d0, d1, d2, out, o);
+		} else if (Endorsements.endorse(d1 != 0.0f)) {
+			intervals(vv1, vv0, vv2, d1, d0, d2, out, o);
+		} else if (Endorsements.endorse(d2 != 0.0f)) {
+			intervals(vv2, vv0, vv1, d2, d0, d1, out, o);
+		} else {
+			/* triangles are coplanar */
+			return true;
+		}
+		return false;
+	}
+
+	/* the vertex with distance da is alone on its side of the plane */
+	private static void intervals(@Approx float va, @Approx float vb, @Approx float vc,
+			@Approx float da, @Approx float db, @Approx float dc, @Approx float[] out, int o) {
+		out[o] = va;
+		out[o + 1] = (vb - va) * da;
+		out[o + 2] = (vc - va) * da;
+		out[o + 3] = da - db;
+		out[o + 4] = da - dc;
+	}
+
+	/*
+	 * coplanarTriTri on vertexes in buffers. As there, a triangle inside the
+	 * other is not reported, so results match the Vector3f form.
+	 */
+	private static @Approx boolean coplanarTriTri(@Approx float nx, @Approx float ny,
+			@Approx float nz, @Approx float[] a, int v0, int v1, int v2,
+			@Approx float[] b, int u0, int u1, int u2) {
+		@Approx float ax, ay, az;
+		short i0, i1;
+		ax = ApproxMath.abs(nx);
+		ay = ApproxMath.abs(ny);
+		az = ApproxMath.abs(nz);
+
+		if (Endorsements.endorse(ax > ay)) {
+			if (Endorsements.endorse(ax > az)) {
+				i0 = 1; /* a[0] is greatest */
+				i1 = 2;
+			} else {
+				i0 = 0; /* a[2] is greatest */
+				i1 = 1;
+			}
+		} else /* a[0] <=a[1] */{
+			if (Endorsements.endorse(az > ay)) {
+				i0 = 0; /* a[2] is greatest */
+				i1 = 1;
+			} else {
+				i0 = 0; /* a[1] is greatest */
+				i1 = 2;
+			}
+		}
+
+		/* test all edges of triangle 1 against the edges of triangle 2 */
+		if (Endorsements.endorse(edgeAgainstTriEdges(a, v0, v1, b, u0, u1, u2, i0, i1))) {
+			return true;
+		}
+		if (Endorsements.endorse(edgeAgainstTriEdges(a, v1, v2, b, u0, u1, u2, i0, i1))) {
+			return true;
+		}
+		if (Endorsements.endorse(edgeAgainstTriEdges(a, v2, v0, b, u0, u1, u2, i0, i1))) {
+			return true;
+		}
+		return false;
+	}
+
+	private static @Approx boolean edgeAgainstTriEdges(@Approx float[] a, int v0, int v1,
+			@Approx float[] b, int u0, int u1, int u2, int i0, int i1) {
+		@Approx float aX, aY;
+		aX = a[v1 + i0] - a[v0 + i0];
+		aY = a[v1 + i1] - a[v0 + i1];
+		if (Endorsements.endorse(edgeEdgeTest(a, v0, b, u0, u1, i0, i1, aX, aY))) {
+			return true;
+		}
+		if (Endorsements.endorse(edgeEdgeTest(a, v0, b, u1, u2, i0, i1, aX, aY))) {
+			return true;
+		}
+		if (Endorsements.endorse(edgeEdgeTest(a, v0, b, u2, u0, i0, i1, aX, aY))) {
+			return true;
+		}
+		return false;
+	}
+
+	private static @Approx boolean edgeEdgeTest(@Approx float[] a, int v0,
+			@Approx float[] b, int u0, int u1, int i0, int i1, @Approx float aX,
+			@Approx float Ay) {
+		@Approx float Bx = b[u0 + i0] - b[u1 + i0];
+		@Approx float By = b[u0 + i1] - b[u1 + i1];
+		@Approx float Cx = a[v0 + i0] - b[u0 + i0];
+		@Approx float Cy = a[v0 + i1] - b[u0 + i1];
+		@Approx float f = Ay * Bx - aX * By;
+		@Approx float d = By * Cx - Bx * Cy;
+		if (Endorsements.endorse((f > 0 && d >= 0 && d <= f) || (f < 0 && d <= 0 && d >= f))) {
+			@Approx float e = aX * Cy - Ay * Cx;
+			if (Endorsements.endorse(f > 0)) {
+				if (Endorsements.endorse(e >= 0 && e <= f))
+					return true;
+			} else {
+				if (Endorsements.endorse(e <= 0 && e >= f))
+					return true;
+			}
+		}
+		return false;
+	}
+
 	private static void sort(@Approx float[] f) {
 		if (Endorsements.endorse(f[0] > f[1])) {
 			@Approx float c = f[0];
@@ -350,8 +653,9 @@ public class Intersection {
 	}
 
 	private static @Approx boolean coplanarTriTri(@Approx Vector3f n, @Approx Vector3f v0, @Approx Vector3f v1,
-			@Approx Vector3f v2, @Approx Vector3f u0, @Approx Vector3f u1, @Approx Vector3f u2) {
-		@Approx Vector3f a = new @Approx Vector3f();
+			@Approx Vector3f v2, @Approx Vector3f u0, @Approx Vector3f u1, @Approx Vector3f u2,
+			VectorStack stack) {
+		@Approx Vector3f a = stack.approxVector3f();
 		short i0, i1;
 		a.x = ApproxMath.abs(n.x);
 		a.y = ApproxMath.abs(n.y);
@@ -376,17 +680,17 @@ public class Intersection {
 		}
 
 		/* test all edges of triangle 1 against the edges of triangle 2 */
-		@Approx float[] v0f = new @Approx float[3];
+		@Approx float[] v0f = stack.approxArray3();
 		v0.toArray(v0f);
-		@Approx float[] v1f = new @Approx float[3];
+		@Approx float[] v1f = stack.approxArray3();
 		v1.toArray(v1f);
-		@Approx float[] v2f = new @Approx float[3];
+		@Approx float[] v2f = stack.approxArray3();
 		v2.toArray(v2f);
-		@Approx float[] u0f = new @Approx float[3];
+		@Approx float[] u0f = stack.approxArray3();
 		u0.toArray(u0f);
-		@Approx float[] u1f = new @Approx float[3];
+		@Approx float[] u1f = stack.approxArray3();
 		u1.toArray(u1f);
-		@Approx float[] u2f = new @Approx float[3];
+		@Approx float[] u2f = stack.approxArray3();
 		u2.toArray(u2f);
 		if (Endorsements.endorse(edgeAgainstTriEdges(v0f, v1f, u0f, u1f, u2f, i0, i1))) {
 			return true;
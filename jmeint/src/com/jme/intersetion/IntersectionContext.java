@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2003-2009 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jme.intersection;
+
+import enerj.lang.*;
+
+/**
+ * <code>IntersectionContext</code> holds the scratch state of the
+ * <code>float[]</code> forms of
+ * {@link Intersection#intersection(float[], int, float[], int, IntersectionContext)}.
+ * Those methods allocate nothing and share no state, so any number of
+ * threads may test triangles at once as long as each uses its own context.
+ * A context is cheap; keep one per thread and reuse it.
+ */
+public final class IntersectionContext {
+
+	/**
+	 * The interval of each triangle along the line where the planes meet,
+	 * as newComputeIntervals finds it: a, b, c, x0, x1 for the first
+	 * triangle, then the same for the second.
+	 */
+	final @Approx float[] interval = new @Approx float[10];
+
+	/**
+	 * A pair gathered from BatchIntersection's arrays for the test.
+	 */
+	final @Approx float[] pair = new @Approx float[18];
+
+	/**
+	 * MeshCollision's stack of node pairs still to visit; it grows as a
+	 * walk needs.
+	 */
+	int[] stack = new int[64];
+
+	/**
+	 * The number of triangle pairs tested with this context.
+	 */
+	public long tests;
+
+	/**
+	 * How many of those intersected.
+	 */
+	public long hits;
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2003-2009 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jme.intersection;
+
+import java.util.Arrays;
+
+import enerj.lang.*;
+
+/**
+ * <code>MeshCollision</code> finds the intersecting triangles of two
+ * meshes, each with its {@link CollisionTree}. The trees are walked
+ * together from their roots: a pair of nodes whose boxes are disjoint is
+ * dropped with everything under it, and otherwise the node with the larger
+ * box is opened. Only triangles of two leaves whose boxes overlap reach
+ * the triangle-triangle test,
+ * {@link Intersection#intersection(float[], int, int, int, float[], int, int, int, IntersectionContext)},
+ * so meshes that touch in a few places cost about the log of their sizes
+ * plus the triangles near the contact, rather than the product of their
+ * triangle counts.
+ * <p>
+ * Both meshes must be in the same space. Nothing is allocated once the
+ * context's stack and the results have grown to fit, and any number of
+ * threads may collide meshes at once, each with its own context.
+ */
+public final class MeshCollision {
+
+	private MeshCollision() {
+	}
+
+	/**
+	 * Adds every intersecting pair of triangles of a and b to results.
+	 * 
+	 * @return the number of pairs added.
+	 */
+	public static int collide(CollisionTree a, CollisionTree b,
+			CollisionResults results, IntersectionContext context) {
+		int before = results.size();
+		traverse(a, b, results, context);
+		return results.size() - before;
+	}
+
+	/**
+	 * Whether any triangle of a intersects one of b; stops at the first.
+	 */
+	public static boolean intersects(CollisionTree a, CollisionTree b,
+			IntersectionContext context) {
+		return traverse(a, b, null, context);
+	}
+
+	/* with results null, returns at the first hit */
+	private static boolean traverse(CollisionTree a, CollisionTree b,
+			CollisionResults results, IntersectionContext context) {
+		if (a.getTriangleCount() == 0 || b.getTriangleCount() == 0)
+			return false;
+		float[] boxA = a.box, boxB = b.box;
+		int[] metaA = a.meta, metaB = b.meta;
+		int[] stack = context.stack;
+		int sp = 0;
+		stack[sp++] = 0;
+		stack[sp++] = 0;
+		boolean found = false;
+		while (sp > 0) {
+			int nb = stack[--sp];
+			int na = stack[--sp];
+			if (!overlap(boxA, 6 * na, boxB, 6 * nb))
+				continue;
+			int countA = metaA[2 * na + 1], countB = metaB[2 * nb + 1];
+			if (countA >= 0 && countB >= 0) {
+				if (leaves(a, metaA[2 * na], countA, b, metaB[2 * nb], countB,
+						results, context)) {
+					found = true;
+					if (results == null)
+						return true;
+				}
+				continue;
+			}
+			if (sp + 4 > stack.length)
+				context.stack = stack = Arrays.copyOf(stack, 2 * stack.length);
+			if (countB >= 0 || (countA < 0 && area(boxA, 6 * na) >= area(boxB, 6 * nb))) {
+				int left = metaA[2 * na];
+				stack[sp++] = left;
+				stack[sp++] = nb;
+				stack[sp++] = left + 1;
+				stack[sp++] = nb;
+			} else {
+				int left = metaB[2 * nb];
+				stack[sp++] = na;
+				stack[sp++] = left;
+				stack[sp++] = na;
+				stack[sp++] = left + 1;
+			}
+		}
+		return found;
+	}
+
+	/* tests each triangle of one leaf against each of the other */
+	private static boolean leaves(CollisionTree a, int firstA, int countA,
+			CollisionTree b, int firstB, int countB, CollisionResults results,
+			IntersectionContext context) {
+		@Approx float[] va = a.vertices, vb = b.vertices;
+		int[] ia = a.indices, ib = b.indices;
+		boolean found = false;
+		for (int k = firstA; k < firstA + countA; k++) {
+			int ta = a.order[k], i = 3 * ta;
+			int v0 = 3 * ia[i], v1 = 3 * ia[i + 1], v2 = 3 * ia[i + 2];
+			for (int m = firstB; m < firstB + countB; m++) {
+				int tb = b.order[m], j = 3 * tb;
+				if (Endorsements.endorse(Intersection.intersection(va, v0, v1, v2,
+						vb, 3 * ib[j], 3 * ib[j + 1], 3 * ib[j + 2], context))) {
+					if (results == null)
+						return true;
+					results.add(ta, tb);
+					found = true;
+				}
+			}
+		}
+		return found;
+	}
+
+	private static boolean overlap(float[] a, int i, float[] b, int j) {
+		return a[i] <= b[j + 3] && b[j] <= a[i + 3]
+				&& a[i + 1] <= b[j + 4] && b[j + 1] <= a[i + 4]
+				&& a[i + 2] <= b[j + 5] && b[j + 2] <= a[i + 5];
+	}
+
+	/* half the surface area */
+	private static float area(float[] b, int o) {
+		float x = b[o + 3] - b[o], y = b[o + 4] - b[o + 1], z = b[o + 5] - b[o + 2];
+		return x * y + y * z + z * x;
+	}
+}
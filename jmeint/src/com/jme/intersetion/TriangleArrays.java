@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2003-2009 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jme.intersection;
+
+import enerj.lang.*;
+
+/**
+ * <code>TriangleArrays</code> stores triangles as structure of arrays: one
+ * array per coordinate of each vertex slot, so that triangle i is
+ * (x0[i], y0[i], z0[i]), (x1[i], y1[i], z1[i]), (x2[i], y2[i], z2[i]). A
+ * loop over many triangles then reads each array sequentially, which is
+ * what {@link BatchIntersection} relies on.
+ */
+public final class TriangleArrays {
+
+	public final int count;
+
+	public final @Approx float[] x0, y0, z0;
+
+	public final @Approx float[] x1, y1, z1;
+
+	public final @Approx float[] x2, y2, z2;
+
+	public TriangleArrays(int count) {
+		this.count = count;
+		x0 = new @Approx float[count];
+		y0 = new @Approx float[count];
+		z0 = new @Approx float[count];
+		x1 = new @Approx float[count];
+		y1 = new @Approx float[count];
+		z1 = new @Approx float[count];
+		x2 = new @Approx float[count];
+		y2 = new @Approx float[count];
+		z2 = new @Approx float[count];
+	}
+
+	/**
+	 * Copies triangles stored as nine consecutive floats each, the layout
+	 * of {@link Intersection#intersection(float[], int, float[], int, IntersectionContext)}.
+	 * 
+	 * @param src
+	 *            the triangles.
+	 * @param offset
+	 *            index of the first triangle's first coordinate.
+	 * @param stride
+	 *            distance between the starts of consecutive triangles, at
+	 *            least 9.
+	 * @param count
+	 *            the number of triangles.
+	 */
+	public static TriangleArrays fromInterleaved(@Approx float[] src, int offset,
+			int stride, int count) {
+		TriangleArrays t = new TriangleArrays(count);
+		for (int i = 0; i < count; i++)
+			t.set(i, src, offset + i * stride);
+		return t;
+	}
+
+	/**
+	 * Sets triangle i from nine consecutive floats of src.
+	 */
+	public void set(int i, @Approx float[] src, int offset) {
+		x0[i] = src[offset];
+		y0[i] = src[offset + 1];
+		z0[i] = src[offset + 2];
+		x1[i] = src[offset + 3];
+		y1[i] = src[offset + 4];
+		z1[i] = src[offset + 5];
+		x2[i] = src[offset + 6];
+		y2[i] = src[offset + 7];
+		z2[i] = src[offset + 8];
+	}
+
+	/**
+	 * Writes triangle i as nine consecutive floats of dst.
+	 */
+	public void get(int i, @Approx float[] dst, int offset) {
+		dst[offset] = x0[i];
+		dst[offset + 1] = y0[i];
+		dst[offset + 2] = z0[i];
+		dst[offset + 3] = x1[i];
+		dst[offset + 4] = y1[i];
+		dst[offset + 5] = z1[i];
+		dst[offset + 6] = x2[i];
+		dst[offset + 7] = y2[i];
+		dst[offset + 8] = z2[i];
+	}
+}
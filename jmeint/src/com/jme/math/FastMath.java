@@ -57,6 +57,8 @@ final public class FastMath {
     
     public static final float ONE_THIRD = 1f/3f;
 
+    private static final float ONE_SIXTH = 1f/6f;
+
     /** The value PI as a float. (180 degrees) */
     public static final float PI = (float)Math.PI;
 
@@ -84,6 +86,34 @@ final public class FastMath {
     /** A precreated random object for random numbers. */
     public static final Random rand = new Random(System.currentTimeMillis());
 
+    /**
+     * Whether sin, cos, asin, acos, atan and invSqrt use the table and
+     * polynomial approximations of the *Fast methods instead of Math. Set
+     * by the system property jme.fastMath=true; being final, it costs the
+     * precise methods nothing when unset.
+     */
+    public static final boolean USE_FAST_MATH = Boolean.getBoolean("jme.fastMath");
+
+    /* sinFast and cosFast: sine at SIN_STEP intervals over a period */
+    private static final int SIN_BITS = 12;
+    private static final int SIN_COUNT = 1 << SIN_BITS;
+    private static final int SIN_MASK = SIN_COUNT - 1;
+    private static final int SIN_QUARTER = SIN_COUNT / 4;
+    private static final double SIN_STEP = 2 * Math.PI / SIN_COUNT;
+    private static final float SIN_INV_STEP = (float) (1 / SIN_STEP);
+    // SIN_STEP in three parts, i * SIN_STEP_HI and i * SIN_STEP_MID being
+    // exact for |i| < 2^14 (Cody and Waite's reduction)
+    private static final float SIN_STEP_HI = Float.intBitsToFloat(
+            Float.floatToIntBits((float) SIN_STEP) & 0xffffc000);
+    private static final float SIN_STEP_MID = Float.intBitsToFloat(
+            Float.floatToIntBits((float) (SIN_STEP - SIN_STEP_HI)) & 0xffffc000);
+    private static final float SIN_STEP_LO = (float) (SIN_STEP - SIN_STEP_HI - SIN_STEP_MID);
+    private static final float[] SIN_TABLE = new float[SIN_COUNT];
+    static {
+        for (int i = 0; i < SIN_COUNT; i++)
+            SIN_TABLE[i] = (float) Math.sin(i * SIN_STEP);
+    }
+
 
     /**
      * Returns true if the number is a power of 2 (2,4,8,16...)
@@ -136,7 +166,7 @@ final public class FastMath {
     public static float acos(float fValue) {
         if (-1.0f < fValue) {
             if (fValue < 1.0f)
-                return (float) Math.acos(fValue);
+                return USE_FAST_MATH ? polyAcos(fValue) : (float) Math.acos(fValue);
             
             return 0.0f;
         } 
@@ -156,7 +186,7 @@ final public class FastMath {
     public static float asin(float fValue) {
         if (-1.0f < fValue) {
             if (fValue < 1.0f)
-                return (float) Math.asin(fValue);
+                return USE_FAST_MATH ? polyAsin(fValue) : (float) Math.asin(fValue);
             
             return HALF_PI;
         }
@@ -171,9 +201,102 @@ final public class FastMath {
      * @see java.lang.Math#atan(double)
      */
     public static float atan(float fValue) {
+        if (USE_FAST_MATH)
+            return atanFast(fValue);
         return (float) Math.atan(fValue);
     }
 
+    /**
+     * Returns the arc cosine of a value, as {@link #acos(float)} but from a
+     * polynomial: with |fValue| &lt;= 0.5, acos = PI/2 - asin; beyond it,
+     * acos = 2 asin(sqrt((1 - |fValue|) / 2)), folded for negative values.
+     * The asin polynomial is the Cephes minimax fit in x^2 on [0, 0.5].
+     * Error: at most 2 ulp against Math.acos rounded to float.
+     * @param fValue The value.
+     * @return fValue's acos
+     */
+    public static float acosFast(float fValue) {
+        if (-1.0f < fValue) {
+            if (fValue < 1.0f)
+                return polyAcos(fValue);
+
+            return 0.0f;
+        }
+
+        return PI;
+    }
+
+    /**
+     * Returns the arc sine of a value, as {@link #asin(float)} but from the
+     * polynomial of {@link #acosFast(float)}.
+     * Error: at most 3 ulp against Math.asin rounded to float.
+     * @param fValue The value.
+     * @return fValue's asin
+     */
+    public static float asinFast(float fValue) {
+        if (-1.0f < fValue) {
+            if (fValue < 1.0f)
+                return polyAsin(fValue);
+
+            return HALF_PI;
+        }
+
+        return -HALF_PI;
+    }
+
+    /**
+     * Returns the arc tangent of a value from a polynomial, with no double
+     * arithmetic. The argument is reduced to [0, tan(PI/8)] by
+     * atan(x) = PI/2 - atan(1/x) and atan(x) = PI/4 + atan((x-1)/(x+1)),
+     * then fitted by the Cephes minimax polynomial in x^2.
+     * Error: at most 3 ulp against Math.atan rounded to float.
+     * @param fValue The value.
+     * @return fValue's atan
+     */
+    public static float atanFast(float fValue) {
+        float x = Math.abs(fValue), y;
+        if (x > 2.414213562373095f) {
+            y = HALF_PI;
+            x = -1 / x;
+        } else if (x > 0.4142135623730950f) {
+            y = QUARTER_PI;
+            x = (x - 1) / (x + 1);
+        } else {
+            y = 0;
+        }
+        float z = x * x;
+        y += (((8.05374449538e-2f * z - 1.38776856032e-1f) * z
+                + 1.99777106478e-1f) * z - 3.33329491539e-1f) * z * x + x;
+        return Math.copySign(y, fValue);
+    }
+
+    /* asin for -1 < fValue < 1 (Cephes asinf) */
+    private static float polyAsin(float fValue) {
+        float x = Math.abs(fValue), z;
+        boolean far = x > 0.5f;
+        if (far) {
+            z = 0.5f * (1 - x);
+            x = (float) Math.sqrt(z);
+        } else {
+            z = x * x;
+        }
+        float y = ((((4.2163199048e-2f * z + 2.4181311049e-2f) * z
+                + 4.5470025998e-2f) * z + 7.4953002686e-2f) * z
+                + 1.6666752422e-1f) * z * x + x;
+        if (far)
+            y = HALF_PI - (y + y);
+        return Math.copySign(y, fValue);
+    }
+
+    /* acos for -1 < fValue < 1 (Cephes acosf) */
+    private static float polyAcos(float fValue) {
+        if (fValue < -0.5f)
+            return PI - 2 * polyAsin((float) Math.sqrt(0.5f * (1 + fValue)));
+        if (fValue > 0.5f)
+            return 2 * polyAsin((float) Math.sqrt(0.5f * (1 - fValue)));
+        return HALF_PI - polyAsin(fValue);
+    }
+
     /**
      * A direct call to Math.atan2.
      * @param fY
@@ -227,6 +350,8 @@ final public class FastMath {
      * @see java.lang.Math#sin(double)
      */
     public static float sin(float fValue) {
+        if (USE_FAST_MATH)
+            return sinFast(fValue);
         fValue = reduceSinAngle(fValue); // limits angle to between -PI/2 and +PI/2
         if (Math.abs(fValue)<=Math.PI/4){
            return (float)Math.sin(fValue);
@@ -244,9 +369,51 @@ final public class FastMath {
      * @see java.lang.Math#cos(double)
      */
     public static float cos(float fValue) {
+        if (USE_FAST_MATH)
+            return cosFast(fValue);
         return sin(fValue+HALF_PI);
     }
 
+    /**
+     * Returns sine of a value from a table of 4096 sines over a period,
+     * after {@link #reduceSinAngle(float)}. The nearest entry s0 = sin(x0)
+     * and the one a quarter period on, c0 = cos(x0), give
+     * sin(x0 + d) = s0 cos d + c0 sin d, with cos d and sin d to the d^3
+     * term; |d| is at most PI/4096, so the table's rounding is the only
+     * error of note. No double arithmetic is involved.
+     * Error: at most 2 ulp against Math.sin of the reduced angle, rounded to
+     * float, or 6 ulp where the result is within 1e-6 of 0. As with
+     * {@link #sin(float)}, the float reduction can be further off from the
+     * sine of the unreduced angle.
+     * @param fValue The value to sine, in radians.
+     * @return The sine of fValue.
+     */
+    public static float sinFast(float fValue) {
+        return tableSin(reduceSinAngle(fValue), 0);
+    }
+
+    /**
+     * Returns cosine of a value from the table of {@link #sinFast(float)},
+     * after reducing the angle to within one period.
+     * Error: at most 2 ulp against Math.cos of the reduced angle, rounded to
+     * float.
+     * @param fValue The value to cosine, in radians.
+     * @return The cosine of fValue.
+     */
+    public static float cosFast(float fValue) {
+        return tableSin(fValue % TWO_PI, SIN_QUARTER);
+    }
+
+    /* sin(radians + shift * SIN_STEP), for |radians| < 8 PI */
+    private static float tableSin(float radians, int shift) {
+        int i = Math.round(radians * SIN_INV_STEP);
+        float d = ((radians - i * SIN_STEP_HI) - i * SIN_STEP_MID) - i * SIN_STEP_LO;
+        i += shift;
+        float s0 = SIN_TABLE[i & SIN_MASK];
+        float c0 = SIN_TABLE[(i + SIN_QUARTER) & SIN_MASK];
+        return s0 + d * (c0 - d * (0.5f * s0 + d * (c0 * ONE_SIXTH)));
+    }
+
     /**
      * Returns E^fValue
      * @param fValue Value to raise to a power.
@@ -285,9 +452,26 @@ final public class FastMath {
      * @see java.lang.Math#sqrt(double)
      */
     public static float invSqrt(float fValue) {
+        if (USE_FAST_MATH)
+            return invSqrtFast(fValue);
         return (float) (1.0f / Math.sqrt(fValue));
     }
 
+    /**
+     * Returns 1/sqrt(fValue) from the float bit pattern trick: halving the
+     * exponent field and subtracting it from 0x5f375a86 gives an estimate
+     * within 3.5%, and one Newton-Raphson step takes it to within 0.18%.
+     * Error: at most 1.75e-3 relative, up to 29000 ulp, for normal positive
+     * values; fine for normalizing, not for anything accumulated. Zero,
+     * negative and non-finite values give meaningless results.
+     * @param fValue The value to process.
+     * @return an approximation of 1/sqrt(fValue)
+     */
+    public static float invSqrtFast(float fValue) {
+        float y = Float.intBitsToFloat(0x5f375a86 - (Float.floatToRawIntBits(fValue) >> 1));
+        return y * (1.5f - 0.5f * fValue * y * y);
+    }
+
     /**
      * Returns the log base E of a value.
      * @param fValue The value to log.
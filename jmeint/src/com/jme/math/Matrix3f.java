@@ -35,6 +35,7 @@ package com.jme.math;
 import java.io.IOException;
 import java.io.Serializable;
 import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
 import com.jme.system.JmeException;
@@ -48,7 +49,7 @@ import com.jme.system.JmeException;
  * @author Mark Powell
  * @author Joshua Slack
  */
-public class Matrix3f  implements Serializable, Cloneable {
+public class Matrix3f  implements Serializable, Cloneable, VertexTransform {
     private static final Logger logger = Logger.getLogger(Matrix3f.class.getName());
 
     private static final long serialVersionUID = 1L;
@@ -739,6 +740,105 @@ public class Matrix3f  implements Serializable, Cloneable {
         return product;
     }
 
+    /**
+     * <code>transform</code> multiplies this matrix by count vectors packed as x, y, z
+     * triples in src, storing the results in dst. The results are those of
+     * {@link #mult(Vector3f, Vector3f)}, without a <code>Vector3f</code> per
+     * vector.
+     * 
+     * @param src
+     *            the vectors.
+     * @param srcOffset
+     *            index in src of the first vector's x.
+     * @param dst
+     *            the array to store the results in. It is safe for this to
+     *            be src, with dstOffset equal to srcOffset.
+     * @param dstOffset
+     *            index in dst of the first result's x.
+     * @param count
+     *            the number of vectors.
+     */
+    public void transform(float[] src, int srcOffset, float[] dst,
+            int dstOffset, int count) {
+        float m00 = this.m00, m01 = this.m01, m02 = this.m02;
+        float m10 = this.m10, m11 = this.m11, m12 = this.m12;
+        float m20 = this.m20, m21 = this.m21, m22 = this.m22;
+        int end = srcOffset + 3 * count;
+        for (int i = srcOffset, j = dstOffset; i < end; i += 3, j += 3) {
+            float x = src[i], y = src[i + 1], z = src[i + 2];
+            dst[j] = m00 * x + m01 * y + m02 * z;
+            dst[j + 1] = m10 * x + m11 * y + m12 * z;
+            dst[j + 2] = m20 * x + m21 * y + m22 * z;
+        }
+    }
+
+    /**
+     * <code>transform</code> multiplies this matrix by count vectors packed as x, y, z
+     * triples in src, storing the results in dst, as
+     * {@link #transform(float[], int, float[], int, int)} does. Indexes are
+     * absolute; neither buffer's position or limit changes. Heap buffers
+     * are transformed through their arrays, and direct ones in place.
+     * 
+     * @param src
+     *            the vectors.
+     * @param srcIndex
+     *            index in src of the first vector's x.
+     * @param dst
+     *            the buffer to store the results in. It is safe for this to
+     *            be src, with dstIndex equal to srcIndex.
+     * @param dstIndex
+     *            index in dst of the first result's x.
+     * @param count
+     *            the number of vectors.
+     * @throws IndexOutOfBoundsException
+     *             if either range passes its buffer's limit.
+     */
+    public void transform(FloatBuffer src, int srcIndex, FloatBuffer dst,
+            int dstIndex, int count) {
+        ParallelTransform.checkRange(src, srcIndex, count);
+        ParallelTransform.checkRange(dst, dstIndex, count);
+        if (src.hasArray() && dst.hasArray()) {
+            transform(src.array(), src.arrayOffset() + srcIndex, dst.array(),
+                    dst.arrayOffset() + dstIndex, count);
+            return;
+        }
+        float m00 = this.m00, m01 = this.m01, m02 = this.m02;
+        float m10 = this.m10, m11 = this.m11, m12 = this.m12;
+        float m20 = this.m20, m21 = this.m21, m22 = this.m22;
+        int end = srcIndex + 3 * count;
+        for (int i = srcIndex, j = dstIndex; i < end; i += 3, j += 3) {
+            float x = src.get(i), y = src.get(i + 1), z = src.get(i + 2);
+            dst.put(j, m00 * x + m01 * y + m02 * z);
+            dst.put(j + 1, m10 * x + m11 * y + m12 * z);
+            dst.put(j + 2, m20 * x + m21 * y + m22 * z);
+        }
+    }
+
+    /**
+     * <code>transform</code> splits
+     * {@link #transform(float[], int, float[], int, int)} across the pool's
+     * threads. This matrix must not change until it returns.
+     */
+    public void transform(float[] src, int srcOffset, float[] dst,
+            int dstOffset, int count, ForkJoinPool pool) {
+        pool.invoke(new ParallelTransform(this, src, srcOffset, dst,
+                dstOffset, count));
+    }
+
+    /**
+     * <code>transform</code> splits
+     * {@link #transform(FloatBuffer, int, FloatBuffer, int, int)} across the
+     * pool's threads. This matrix must not change until it returns.
+     */
+    public void transform(FloatBuffer src, int srcIndex, FloatBuffer dst,
+            int dstIndex, int count, ForkJoinPool pool) {
+        ParallelTransform.checkRange(src, srcIndex, count);
+        ParallelTransform.checkRange(dst, dstIndex, count);
+        pool.invoke(new ParallelTransform(this, src, srcIndex, dst,
+                dstIndex, count));
+    }
+
+
     /**
      * <code>multLocal</code> multiplies this matrix internally by 
      * a given float scale factor.
@@ -1081,7 +1181,18 @@ public class Matrix3f  implements Serializable, Cloneable {
      *      One Vector to Another\" Journal of Graphics Tools, 4(4):1-4, 1999"
      */
     public void fromStartEndVectors(Vector3f start, Vector3f end) {
-        Vector3f v = new Vector3f();
+        VectorStack stack = VectorStack.get();
+        stack.push();
+        try {
+            fromStartEndVectors(start, end, stack);
+        } finally {
+            stack.pop();
+        }
+    }
+
+    private void fromStartEndVectors(Vector3f start, Vector3f end,
+            VectorStack stack) {
+        Vector3f v = stack.vector3f();
         float e, h, f;
 
         start.cross(end, v);
@@ -1090,8 +1201,8 @@ public class Matrix3f  implements Serializable, Cloneable {
 
         // if "from" and "to" vectors are nearly parallel
         if (f > 1.0f - FastMath.ZERO_TOLERANCE) {
-            Vector3f u = new Vector3f();
-            Vector3f x = new Vector3f();
+            Vector3f u = stack.vector3f();
+            Vector3f x = stack.vector3f();
             float c1, c2, c3; /* coefficients for later use */
             int i, j;
 
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2003-2009 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jme.math;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <code>ParallelTransform</code> runs a bulk vertex transform on a fork/join
+ * pool, halving the vertexes until each task has at most GRAIN of them.
+ * Each task reads and writes only its own vertexes, so no two share any
+ * state but the transform, which must not change meanwhile.
+ */
+final class ParallelTransform extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Fewest vertexes worth a task of their own.
+     */
+    static final int GRAIN = 8192;
+
+    private final VertexTransform transform;
+    private final float[] srcArray, dstArray;
+    private final FloatBuffer srcBuffer, dstBuffer;
+    private final int src, dst, count;
+
+    ParallelTransform(VertexTransform transform, float[] src, int srcOffset,
+            float[] dst, int dstOffset, int count) {
+        this(transform, src, dst, null, null, srcOffset, dstOffset, count);
+    }
+
+    ParallelTransform(VertexTransform transform, FloatBuffer src,
+            int srcIndex, FloatBuffer dst, int dstIndex, int count) {
+        this(transform, null, null, src, dst, srcIndex, dstIndex, count);
+    }
+
+    private ParallelTransform(VertexTransform transform, float[] srcArray,
+            float[] dstArray, FloatBuffer srcBuffer, FloatBuffer dstBuffer,
+            int src, int dst, int count) {
+        this.transform = transform;
+        this.srcArray = srcArray;
+        this.dstArray = dstArray;
+        this.srcBuffer = srcBuffer;
+        this.dstBuffer = dstBuffer;
+        this.src = src;
+        this.dst = dst;
+        this.count = count;
+    }
+
+    /**
+     * Throws <code>IndexOutOfBoundsException</code> unless count vectors
+     * starting at index fit below the buffer's limit.
+     */
+    static void checkRange(FloatBuffer buffer, int index, int count) {
+        if (index < 0 || count < 0 || index + 3L * count > buffer.limit())
+            throw new IndexOutOfBoundsException(count + " vectors at " + index
+                    + " of a buffer of limit " + buffer.limit());
+    }
+
+    protected void compute() {
+        if (count > GRAIN) {
+            int half = count / 2;
+            invokeAll(new ParallelTransform(transform, srcArray, dstArray,
+                    srcBuffer, dstBuffer, src, dst, half),
+                    new ParallelTransform(transform, srcArray, dstArray,
+                            srcBuffer, dstBuffer, src + 3 * half,
+                            dst + 3 * half, count - half));
+        } else if (srcArray != null) {
+            transform.transform(srcArray, src, dstArray, dst, count);
+        } else {
+            transform.transform(srcBuffer, src, dstBuffer, dst, count);
+        }
+    }
+}
@@ -36,6 +36,8 @@ import java.io.Externalizable;
 import java.io.IOException;
 import java.io.ObjectInput;
 import java.io.ObjectOutput;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
 import com.jme.system.JmeException;
@@ -52,7 +54,7 @@ import com.jme.system.JmeException;
  * @author Mark Powell
  * @author Joshua Slack
  */
-public class Quaternion implements Externalizable, Cloneable {
+public class Quaternion implements Externalizable, Cloneable, VertexTransform {
     private static final Logger logger = Logger.getLogger(Quaternion.class.getName());
 
     private static final long serialVersionUID = 1L;
@@ -956,6 +958,115 @@ public class Quaternion implements Externalizable, Cloneable {
         return store;
     }
 
+    /**
+     * <code>transform</code> rotates count vectors packed as x, y, z
+     * triples in src, storing the results in dst. The results are those of
+     * {@link #mult(Vector3f, Vector3f)} to within rounding, without a
+     * <code>Vector3f</code> per vector.
+     * 
+     * @param src
+     *            the vectors.
+     * @param srcOffset
+     *            index in src of the first vector's x.
+     * @param dst
+     *            the array to store the results in. It is safe for this to
+     *            be src, with dstOffset equal to srcOffset.
+     * @param dstOffset
+     *            index in dst of the first result's x.
+     * @param count
+     *            the number of vectors.
+     */
+    public void transform(float[] src, int srcOffset, float[] dst,
+            int dstOffset, int count) {
+        // the matrix mult(Vector3f, Vector3f) amounts to, which like it
+        // scales by the squared norm rather than normalizing
+        float xx = x * x, yy = y * y, zz = z * z, ww = w * w;
+        float xy = 2 * x * y, xz = 2 * x * z, yz = 2 * y * z;
+        float xw = 2 * x * w, yw = 2 * y * w, zw = 2 * z * w;
+        float m00 = ww + xx - yy - zz, m01 = xy - zw, m02 = xz + yw;
+        float m10 = xy + zw, m11 = ww - xx + yy - zz, m12 = yz - xw;
+        float m20 = xz - yw, m21 = yz + xw, m22 = ww - xx - yy + zz;
+        int end = srcOffset + 3 * count;
+        for (int i = srcOffset, j = dstOffset; i < end; i += 3, j += 3) {
+            float vx = src[i], vy = src[i + 1], vz = src[i + 2];
+            dst[j] = m00 * vx + m01 * vy + m02 * vz;
+            dst[j + 1] = m10 * vx + m11 * vy + m12 * vz;
+            dst[j + 2] = m20 * vx + m21 * vy + m22 * vz;
+        }
+    }
+
+    /**
+     * <code>transform</code> rotates count vectors packed as x, y, z
+     * triples in src, storing the results in dst, as
+     * {@link #transform(float[], int, float[], int, int)} does. Indexes are
+     * absolute; neither buffer's position or limit changes. Heap buffers
+     * are transformed through their arrays, and direct ones in place.
+     * 
+     * @param src
+     *            the vectors.
+     * @param srcIndex
+     *            index in src of the first vector's x.
+     * @param dst
+     *            the buffer to store the results in. It is safe for this to
+     *            be src, with dstIndex equal to srcIndex.
+     * @param dstIndex
+     *            index in dst of the first result's x.
+     * @param count
+     *            the number of vectors.
+     * @throws IndexOutOfBoundsException
+     *             if either range passes its buffer's limit.
+     */
+    public void transform(FloatBuffer src, int srcIndex, FloatBuffer dst,
+            int dstIndex, int count) {
+        ParallelTransform.checkRange(src, srcIndex, count);
+        ParallelTransform.checkRange(dst, dstIndex, count);
+        if (src.hasArray() && dst.hasArray()) {
+            transform(src.array(), src.arrayOffset() + srcIndex, dst.array(),
+                    dst.arrayOffset() + dstIndex, count);
+            return;
+        }
+        // the matrix mult(Vector3f, Vector3f) amounts to, which like it
+        // scales by the squared norm rather than normalizing
+        float xx = x * x, yy = y * y, zz = z * z, ww = w * w;
+        float xy = 2 * x * y, xz = 2 * x * z, yz = 2 * y * z;
+        float xw = 2 * x * w, yw = 2 * y * w, zw = 2 * z * w;
+        float m00 = ww + xx - yy - zz, m01 = xy - zw, m02 = xz + yw;
+        float m10 = xy + zw, m11 = ww - xx + yy - zz, m12 = yz - xw;
+        float m20 = xz - yw, m21 = yz + xw, m22 = ww - xx - yy + zz;
+        int end = srcIndex + 3 * count;
+        for (int i = srcIndex, j = dstIndex; i < end; i += 3, j += 3) {
+            float vx = src.get(i), vy = src.get(i + 1), vz = src.get(i + 2);
+            dst.put(j, m00 * vx + m01 * vy + m02 * vz);
+            dst.put(j + 1, m10 * vx + m11 * vy + m12 * vz);
+            dst.put(j + 2, m20 * vx + m21 * vy + m22 * vz);
+        }
+    }
+
+    /**
+     * <code>transform</code> splits
+     * {@link #transform(float[], int, float[], int, int)} across the pool's
+     * threads. This quaternion must not change until it returns.
+     */
+    public void transform(float[] src, int srcOffset, float[] dst,
+            int dstOffset, int count, ForkJoinPool pool) {
+        pool.invoke(new ParallelTransform(this, src, srcOffset, dst,
+                dstOffset, count));
+    }
+
+    /**
+     * <code>transform</code> splits
+     * {@link #transform(FloatBuffer, int, FloatBuffer, int, int)} across the
+     * pool's threads. This quaternion must not change until it returns.
+     */
+    public void transform(FloatBuffer src, int srcIndex, FloatBuffer dst,
+            int dstIndex, int count, ForkJoinPool pool) {
+        ParallelTransform.checkRange(src, srcIndex, count);
+        ParallelTransform.checkRange(dst, dstIndex, count);
+        pool.invoke(new ParallelTransform(this, src, srcIndex, dst,
+                dstIndex, count));
+    }
+
+
     /**
      * <code>mult</code> multiplies this quaternion by a parameter scalar. The
      * result is returned as a new quaternion.
@@ -1164,10 +1275,6 @@ public class Quaternion implements Externalizable, Cloneable {
         out.writeFloat(w);
     }
 
-    private static final Vector3f tmpYaxis = new Vector3f();
-    private static final Vector3f tmpZaxis = new Vector3f();
-    private static final Vector3f tmpXaxis = new Vector3f();
-
     /**
      * <code>lookAt</code> is a convienence method for auto-setting the
      * quaternion based on a direction and an up vector. It computes
@@ -1181,10 +1288,16 @@ public class Quaternion implements Externalizable, Cloneable {
      *            (typically {0, 1, 0} in jME.)
      */
     public void lookAt(Vector3f direction, Vector3f up ) {
-        tmpZaxis.set( direction ).normalizeLocal();
-        tmpXaxis.set( up ).crossLocal( direction ).normalizeLocal();
-        tmpYaxis.set( direction ).crossLocal( tmpXaxis ).normalizeLocal();
-        fromAxes( tmpXaxis, tmpYaxis, tmpZaxis );
+        VectorStack stack = VectorStack.get();
+        stack.push();
+        try {
+            Vector3f tmpZaxis = stack.vector3f().set( direction ).normalizeLocal();
+            Vector3f tmpXaxis = stack.vector3f().set( up ).crossLocal( direction ).normalizeLocal();
+            Vector3f tmpYaxis = stack.vector3f().set( direction ).crossLocal( tmpXaxis ).normalizeLocal();
+            fromAxes( tmpXaxis, tmpYaxis, tmpZaxis );
+        } finally {
+            stack.pop();
+        }
     }
 
     public Class<? extends Quaternion> getClassTag() {
@@ -1212,10 +1325,16 @@ public class Quaternion implements Externalizable, Cloneable {
         if (store == null)
             store = new Quaternion();
         
-        Vector3f axis = new Vector3f();
-        float angle = toAngleAxis(axis);
+        VectorStack stack = VectorStack.get();
+        stack.push();
+        try {
+            Vector3f axis = stack.vector3f();
+            float angle = toAngleAxis(axis);
 
-        store.fromAngleAxis(FastMath.PI + angle, axis);
+            store.fromAngleAxis(FastMath.PI + angle, axis);
+        } finally {
+            stack.pop();
+        }
         return store;
     }
 
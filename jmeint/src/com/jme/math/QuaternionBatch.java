@@ -0,0 +1,322 @@
+/*
+ * Copyright (c) 2003-2009 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jme.math;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <code>QuaternionBatch</code> interpolates many pairs of rotations at once,
+ * as an animation does for every bone of a skeleton each frame. Quaternions
+ * are packed four floats each, x, y, z, w as in <code>Quaternion</code>, and
+ * quaternion k of a batch blends q1[k] toward q2[k] by t, or by t[k] when
+ * each pair has its own amount. Nothing is allocated, and neither input
+ * changes; dst may be q1 or q2 at the same offset to blend in place.
+ * <p>
+ * <code>nlerp</code> blends linearly and normalizes, which costs a few
+ * multiplies and one inverse square root per quaternion. It follows the
+ * same arc as slerp but not at constant speed: the two agree at t = 0, 0.5
+ * and 1, and between them differ by at most about 0.05 degrees for pairs
+ * up to 30 degrees apart, 0.3 at 60 and 0.9 at 90. Keyframes are seldom
+ * that far apart. The normalizing goes through {@link FastMath#invSqrt},
+ * so with <code>jme.fastMath</code> set it uses the approximation.
+ * <p>
+ * <code>slerp</code> moves along the arc at constant speed, with weights
+ * within 1e-6 of sin((1 - t) theta) / sin(theta) and
+ * sin(t theta) / sin(theta) for t from 0 to 1. It takes them from a
+ * series in cos(theta) - 1 rather than from acos and sines, so it costs
+ * some eighty multiplies and no branches. The series is most accurate for
+ * pairs close together, where the division by sin(theta) breaks down and
+ * {@link Quaternion#slerp(Quaternion, Quaternion, float)} falls back to a
+ * plain linear blend; that method does so for any pair closer than about
+ * 50 degrees, so its results there are slightly short of unit length and
+ * differ from these.
+ * <p>
+ * The <code>ForkJoinPool</code> forms halve a batch until each task has at
+ * most GRAIN quaternions.
+ */
+public final class QuaternionBatch {
+
+    /**
+     * Fewest quaternions worth a task of their own.
+     */
+    static final int GRAIN = 4096;
+
+    /*
+     * sin(t theta) / sin(theta) = t (1 + b1 (1 + b2 (1 + ...))), where
+     * bi = (t^2 - i^2) / (i (2i + 1)) (cos(theta) - 1) = (U[i-1] t^2 - V[i-1])
+     * (cos(theta) - 1). The last term is scaled by MU to stand in for the
+     * ones dropped; with twelve terms that keeps the error within 7.2e-7
+     * over 0 <= t <= 1 and 0 <= cos(theta) <= 1.
+     */
+    private static final int TERMS = 12;
+
+    private static final double MU = 1.8937118511738196;
+
+    private static final float[] U = new float[TERMS], V = new float[TERMS];
+
+    static {
+        for (int i = 1; i <= TERMS; i++) {
+            double scale = i == TERMS ? MU : 1;
+            U[i - 1] = (float) (scale / (i * (2.0 * i + 1)));
+            V[i - 1] = (float) (scale * i / (2.0 * i + 1));
+        }
+    }
+
+    private QuaternionBatch() {
+    }
+
+    /**
+     * <code>nlerp</code> blends count quaternions of q1 toward those of q2 by
+     * t, normalizing each result.
+     * 
+     * @param q1
+     *            the quaternions at t = 0.
+     * @param q1Offset
+     *            index in q1 of the first quaternion's x.
+     * @param q2
+     *            the quaternions at t = 1.
+     * @param q2Offset
+     *            index in q2 of the first quaternion's x.
+     * @param t
+     *            the amount to blend every pair by.
+     * @param dst
+     *            the array to store the results in.
+     * @param dstOffset
+     *            index in dst of the first result's x.
+     * @param count
+     *            the number of quaternions.
+     */
+    public static void nlerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float t, float[] dst, int dstOffset, int count) {
+        nlerp(q1, q1Offset, q2, q2Offset, null, 0, t, dst, dstOffset, count);
+    }
+
+    /**
+     * <code>nlerp</code> blends count quaternions of q1 toward those of q2,
+     * pair k by t[tOffset + k], normalizing each result.
+     */
+    public static void nlerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float[] t, int tOffset, float[] dst, int dstOffset,
+            int count) {
+        nlerp(q1, q1Offset, q2, q2Offset, t, tOffset, 0, dst, dstOffset, count);
+    }
+
+    /**
+     * <code>slerp</code> interpolates count unit quaternions of q1 toward
+     * those of q2 by t, between 0 and 1, at constant angular speed.
+     * 
+     * @param q1
+     *            the quaternions at t = 0.
+     * @param q1Offset
+     *            index in q1 of the first quaternion's x.
+     * @param q2
+     *            the quaternions at t = 1.
+     * @param q2Offset
+     *            index in q2 of the first quaternion's x.
+     * @param t
+     *            the amount to interpolate every pair by.
+     * @param dst
+     *            the array to store the results in.
+     * @param dstOffset
+     *            index in dst of the first result's x.
+     * @param count
+     *            the number of quaternions.
+     */
+    public static void slerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float t, float[] dst, int dstOffset, int count) {
+        slerp(q1, q1Offset, q2, q2Offset, null, 0, t, dst, dstOffset, count);
+    }
+
+    /**
+     * <code>slerp</code> interpolates count unit quaternions of q1 toward
+     * those of q2, pair k by t[tOffset + k], between 0 and 1.
+     */
+    public static void slerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float[] t, int tOffset, float[] dst, int dstOffset,
+            int count) {
+        slerp(q1, q1Offset, q2, q2Offset, t, tOffset, 0, dst, dstOffset, count);
+    }
+
+    /**
+     * <code>nlerp</code> splits
+     * {@link #nlerp(float[], int, float[], int, float, float[], int, int)}
+     * across the pool's threads.
+     */
+    public static void nlerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float t, float[] dst, int dstOffset, int count,
+            ForkJoinPool pool) {
+        pool.invoke(new Span(false, q1, q1Offset, q2, q2Offset, null, 0, t,
+                dst, dstOffset, count));
+    }
+
+    /**
+     * <code>nlerp</code> splits
+     * {@link #nlerp(float[], int, float[], int, float[], int, float[], int, int)}
+     * across the pool's threads.
+     */
+    public static void nlerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float[] t, int tOffset, float[] dst, int dstOffset,
+            int count, ForkJoinPool pool) {
+        pool.invoke(new Span(false, q1, q1Offset, q2, q2Offset, t, tOffset, 0,
+                dst, dstOffset, count));
+    }
+
+    /**
+     * <code>slerp</code> splits
+     * {@link #slerp(float[], int, float[], int, float, float[], int, int)}
+     * across the pool's threads.
+     */
+    public static void slerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float t, float[] dst, int dstOffset, int count,
+            ForkJoinPool pool) {
+        pool.invoke(new Span(true, q1, q1Offset, q2, q2Offset, null, 0, t,
+                dst, dstOffset, count));
+    }
+
+    /**
+     * <code>slerp</code> splits
+     * {@link #slerp(float[], int, float[], int, float[], int, float[], int, int)}
+     * across the pool's threads.
+     */
+    public static void slerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float[] t, int tOffset, float[] dst, int dstOffset,
+            int count, ForkJoinPool pool) {
+        pool.invoke(new Span(true, q1, q1Offset, q2, q2Offset, t, tOffset, 0,
+                dst, dstOffset, count));
+    }
+
+    /* pair k blends by ts[tOffset + k], or by t if ts is null */
+    private static void nlerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float[] ts, int tOffset, float t, float[] dst,
+            int dstOffset, int count) {
+        for (int k = 0; k < count; k++) {
+            int a = q1Offset + 4 * k, b = q2Offset + 4 * k, d = dstOffset + 4 * k;
+            float tk = ts == null ? t : ts[tOffset + k];
+            float x1 = q1[a], y1 = q1[a + 1], z1 = q1[a + 2], w1 = q1[a + 3];
+            float x2 = q2[b], y2 = q2[b + 1], z2 = q2[b + 2], w2 = q2[b + 3];
+            float dot = (x1 * x2) + (y1 * y2) + (z1 * z2) + (w1 * w2);
+
+            // blend toward whichever of q2 and -q2 is nearer q1
+            float scale0 = 1 - tk;
+            float scale1 = dot < 0.0f ? -tk : tk;
+            float x = (scale0 * x1) + (scale1 * x2);
+            float y = (scale0 * y1) + (scale1 * y2);
+            float z = (scale0 * z1) + (scale1 * z2);
+            float w = (scale0 * w1) + (scale1 * w2);
+
+            // as Quaternion.normalize
+            float n = FastMath.invSqrt(w * w + x * x + y * y + z * z);
+            dst[d] = x * n;
+            dst[d + 1] = y * n;
+            dst[d + 2] = z * n;
+            dst[d + 3] = w * n;
+        }
+    }
+
+    /* pair k interpolates by ts[tOffset + k], or by t if ts is null */
+    private static void slerp(float[] q1, int q1Offset, float[] q2,
+            int q2Offset, float[] ts, int tOffset, float t, float[] dst,
+            int dstOffset, int count) {
+        for (int k = 0; k < count; k++) {
+            int a = q1Offset + 4 * k, b = q2Offset + 4 * k, d = dstOffset + 4 * k;
+            float tk = ts == null ? t : ts[tOffset + k];
+            float x1 = q1[a], y1 = q1[a + 1], z1 = q1[a + 2], w1 = q1[a + 3];
+            float x2 = q2[b], y2 = q2[b + 1], z2 = q2[b + 2], w2 = q2[b + 3];
+            float dot = (x1 * x2) + (y1 * y2) + (z1 * z2) + (w1 * w2);
+
+            // go the short way, toward whichever of q2 and -q2 is nearer q1
+            float cosm1 = (dot < 0.0f ? -dot : dot) - 1;
+            float sk = 1 - tk;
+            float tt = tk * tk, ss = sk * sk;
+            float f0 = 1, f1 = 1;
+            for (int i = TERMS - 1; i >= 0; i--) {
+                f0 = 1 + (U[i] * ss - V[i]) * cosm1 * f0;
+                f1 = 1 + (U[i] * tt - V[i]) * cosm1 * f1;
+            }
+            float scale0 = sk * f0;
+            float scale1 = dot < 0.0f ? -tk * f1 : tk * f1;
+
+            dst[d] = (scale0 * x1) + (scale1 * x2);
+            dst[d + 1] = (scale0 * y1) + (scale1 * y2);
+            dst[d + 2] = (scale0 * z1) + (scale1 * z2);
+            dst[d + 3] = (scale0 * w1) + (scale1 * w2);
+        }
+    }
+
+    /**
+     * A run of a batch, halved until each task has at most GRAIN
+     * quaternions. Tasks write disjoint parts of dst.
+     */
+    static final class Span extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final boolean slerp;
+        private final float[] q1, q2, ts, dst;
+        private final int q1Offset, q2Offset, tOffset, dstOffset, count;
+        private final float t;
+
+        Span(boolean slerp, float[] q1, int q1Offset, float[] q2,
+                int q2Offset, float[] ts, int tOffset, float t, float[] dst,
+                int dstOffset, int count) {
+            this.slerp = slerp;
+            this.q1 = q1;
+            this.q1Offset = q1Offset;
+            this.q2 = q2;
+            this.q2Offset = q2Offset;
+            this.ts = ts;
+            this.tOffset = tOffset;
+            this.t = t;
+            this.dst = dst;
+            this.dstOffset = dstOffset;
+            this.count = count;
+        }
+
+        protected void compute() {
+            if (count > GRAIN) {
+                int half = count / 2;
+                invokeAll(new Span(slerp, q1, q1Offset, q2, q2Offset, ts,
+                        tOffset, t, dst, dstOffset, half),
+                        new Span(slerp, q1, q1Offset + 4 * half, q2,
+                                q2Offset + 4 * half, ts, tOffset + half, t,
+                                dst, dstOffset + 4 * half, count - half));
+            } else if (slerp) {
+                slerp(q1, q1Offset, q2, q2Offset, ts, tOffset, t, dst,
+                        dstOffset, count);
+            } else {
+                nlerp(q1, q1Offset, q2, q2Offset, ts, tOffset, t, dst,
+                        dstOffset, count);
+            }
+        }
+    }
+}
@@ -34,6 +34,8 @@ package com.jme.math;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.FloatBuffer;
+import java.util.concurrent.ForkJoinPool;
 import java.util.logging.Logger;
 
 import com.jme.system.JmeException;
@@ -44,7 +46,7 @@ import com.jme.system.JmeException;
  * @author Jack Lindamood
  * @author Joshua Slack
  */
-public class TransformMatrix  implements Serializable, Cloneable {
+public class TransformMatrix  implements Serializable, Cloneable, VertexTransform {
     private static final Logger logger = Logger.getLogger(TransformMatrix.class
             .getName());
     
@@ -218,6 +220,154 @@ public class TransformMatrix  implements Serializable, Cloneable {
         return rot.multLocal(vec).multLocal(scale).addLocal(translation);
     }
 
+    /**
+     * <code>transform</code> transforms count points packed as x, y, z
+     * triples in src, storing the results in dst. The results are those of
+     * {@link #multPoint(Vector3f)}, without a <code>Vector3f</code> per
+     * point.
+     * 
+     * @param src
+     *            the points.
+     * @param srcOffset
+     *            index in src of the first point's x.
+     * @param dst
+     *            the array to store the results in. It is safe for this to
+     *            be src, with dstOffset equal to srcOffset.
+     * @param dstOffset
+     *            index in dst of the first result's x.
+     * @param count
+     *            the number of points.
+     */
+    public void transform(float[] src, int srcOffset, float[] dst,
+            int dstOffset, int count) {
+        Matrix3f r = rot;
+        float m00 = r.m00, m01 = r.m01, m02 = r.m02;
+        float m10 = r.m10, m11 = r.m11, m12 = r.m12;
+        float m20 = r.m20, m21 = r.m21, m22 = r.m22;
+        float sx = scale.x, sy = scale.y, sz = scale.z;
+        float tx = translation.x, ty = translation.y, tz = translation.z;
+        int end = srcOffset + 3 * count;
+        for (int i = srcOffset, j = dstOffset; i < end; i += 3, j += 3) {
+            float x = src[i], y = src[i + 1], z = src[i + 2];
+            dst[j] = (m00 * x + m01 * y + m02 * z) * sx + tx;
+            dst[j + 1] = (m10 * x + m11 * y + m12 * z) * sy + ty;
+            dst[j + 2] = (m20 * x + m21 * y + m22 * z) * sz + tz;
+        }
+    }
+
+    /**
+     * <code>transform</code> transforms count points packed as x, y, z
+     * triples in src, storing the results in dst, as
+     * {@link #transform(float[], int, float[], int, int)} does. Indexes are
+     * absolute; neither buffer's position or limit changes. Heap buffers
+     * are transformed through their arrays, and direct ones in place.
+     * 
+     * @param src
+     *            the points.
+     * @param srcIndex
+     *            index in src of the first point's x.
+     * @param dst
+     *            the buffer to store the results in. It is safe for this to
+     *            be src, with dstIndex equal to srcIndex.
+     * @param dstIndex
+     *            index in dst of the first result's x.
+     * @param count
+     *            the number of points.
+     * @throws IndexOutOfBoundsException
+     *             if either range passes its buffer's limit.
+     */
+    public void transform(FloatBuffer src, int srcIndex, FloatBuffer dst,
+            int dstIndex, int count) {
+        ParallelTransform.checkRange(src, srcIndex, count);
+        ParallelTransform.checkRange(dst, dstIndex, count);
+        if (src.hasArray() && dst.hasArray()) {
+            transform(src.array(), src.arrayOffset() + srcIndex, dst.array(),
+                    dst.arrayOffset() + dstIndex, count);
+            return;
+        }
+        Matrix3f r = rot;
+        float m00 = r.m00, m01 = r.m01, m02 = r.m02;
+        float m10 = r.m10, m11 = r.m11, m12 = r.m12;
+        float m20 = r.m20, m21 = r.m21, m22 = r.m22;
+        float sx = scale.x, sy = scale.y, sz = scale.z;
+        float tx = translation.x, ty = translation.y, tz = translation.z;
+        int end = srcIndex + 3 * count;
+        for (int i = srcIndex, j = dstIndex; i < end; i += 3, j += 3) {
+            float x = src.get(i), y = src.get(i + 1), z = src.get(i + 2);
+            dst.put(j, (m00 * x + m01 * y + m02 * z) * sx + tx);
+            dst.put(j + 1, (m10 * x + m11 * y + m12 * z) * sy + ty);
+            dst.put(j + 2, (m20 * x + m21 * y + m22 * z) * sz + tz);
+        }
+    }
+
+    /**
+     * <code>transform</code> splits
+     * {@link #transform(float[], int, float[], int, int)} across the pool's
+     * threads. This transform must not change until it returns.
+     */
+    public void transform(float[] src, int srcOffset, float[] dst,
+            int dstOffset, int count, ForkJoinPool pool) {
+        pool.invoke(new ParallelTransform(this, src, srcOffset, dst,
+                dstOffset, count));
+    }
+
+    /**
+     * <code>transform</code> splits
+     * {@link #transform(FloatBuffer, int, FloatBuffer, int, int)} across the
+     * pool's threads. This transform must not change until it returns.
+     */
+    public void transform(FloatBuffer src, int srcIndex, FloatBuffer dst,
+            int dstIndex, int count, ForkJoinPool pool) {
+        ParallelTransform.checkRange(src, srcIndex, count);
+        ParallelTransform.checkRange(dst, dstIndex, count);
+        pool.invoke(new ParallelTransform(this, src, srcIndex, dst,
+                dstIndex, count));
+    }
+
+    /**
+     * <code>transformNormals</code> rotates count vectors packed as x, y, z
+     * triples in src, storing the results in dst, as
+     * {@link #multNormal(Vector3f)} does; translation and scale are ignored.
+     * Otherwise as {@link #transform(float[], int, float[], int, int)}.
+     */
+    public void transformNormals(float[] src, int srcOffset, float[] dst,
+            int dstOffset, int count) {
+        rot.transform(src, srcOffset, dst, dstOffset, count);
+    }
+
+    /**
+     * <code>transformNormals</code> rotates count vectors as
+     * {@link #transformNormals(float[], int, float[], int, int)} does, with
+     * the buffers indexed as by
+     * {@link #transform(FloatBuffer, int, FloatBuffer, int, int)}.
+     */
+    public void transformNormals(FloatBuffer src, int srcIndex,
+            FloatBuffer dst, int dstIndex, int count) {
+        rot.transform(src, srcIndex, dst, dstIndex, count);
+    }
+
+    /**
+     * <code>transformNormals</code> splits
+     * {@link #transformNormals(float[], int, float[], int, int)} across the
+     * pool's threads. This transform must not change until it returns.
+     */
+    public void transformNormals(float[] src, int srcOffset, float[] dst,
+            int dstOffset, int count, ForkJoinPool pool) {
+        rot.transform(src, srcOffset, dst, dstOffset, count, pool);
+    }
+
+    /**
+     * <code>transformNormals</code> splits
+     * {@link #transformNormals(FloatBuffer, int, FloatBuffer, int, int)}
+     * across the pool's threads. This transform must not change until it
+     * returns.
+     */
+    public void transformNormals(FloatBuffer src, int srcIndex,
+            FloatBuffer dst, int dstIndex, int count, ForkJoinPool pool) {
+        rot.transform(src, srcIndex, dst, dstIndex, count, pool);
+    }
+
+
 
     /**
      * Sets the rotation matrix to the given rotation matrix via a copy.  If null is supplied, the identity is set
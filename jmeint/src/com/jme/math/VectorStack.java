@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2003-2009 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.jme.math;
+
+import enerj.lang.*;
+
+/**
+ * <code>VectorStack</code> hands out scratch vectors and arrays from pools
+ * owned by one thread, so that math code can work on temporaries without
+ * creating garbage and without sharing static temps between threads.
+ * <p>
+ * Scratch objects are taken within a scope: {@link #push()} opens one and
+ * {@link #pop()} gives back everything taken since, for reuse by the next
+ * scope. Scopes nest, and pools grow to the most any scope needs, so once
+ * a loop has run through its deepest path it allocates nothing more.
+ * 
+ * <pre>
+ * VectorStack stack = VectorStack.get();
+ * stack.push();
+ * try {
+ *     Vector3f edge = stack.vector3f();
+ *     ...
+ * } finally {
+ *     stack.pop();
+ * }
+ * </pre>
+ * 
+ * A scratch object keeps whatever its last user left in it; set it before
+ * reading it. Nothing taken may be kept past the matching pop, nor given
+ * to another thread.
+ */
+public final class VectorStack {
+
+    private static final ThreadLocal<VectorStack> stacks = new ThreadLocal<VectorStack>() {
+        protected VectorStack initialValue() {
+            return new VectorStack();
+        }
+    };
+
+    /**
+     * The number of pools, and so of tops saved per scope.
+     */
+    private static final int POOLS = 6;
+
+    private Vector3f[] vector3f = new Vector3f[8];
+    private @Approx Vector3f[] approxVector3f = new @Approx Vector3f[8];
+    private Vector2f[] vector2f = new Vector2f[8];
+    private @Approx Vector2f[] approxVector2f = new @Approx Vector2f[8];
+    private float[][] array3 = new float[8][];
+    private @Approx float[][] approxArray3 = new @Approx float[8][];
+
+    private int vector3fTop, approxVector3fTop, vector2fTop, approxVector2fTop,
+            array3Top, approxArray3Top;
+
+    /**
+     * The pool tops at each open scope's push, POOLS to a scope.
+     */
+    private int[] marks = new int[POOLS * 8];
+
+    private int depth;
+
+    private VectorStack() {
+    }
+
+    /**
+     * @return the calling thread's stack.
+     */
+    public static VectorStack get() {
+        return stacks.get();
+    }
+
+    /**
+     * Opens a scope, which must be closed by a matching {@link #pop()}.
+     */
+    public void push() {
+        int m = depth * POOLS;
+        if (m == marks.length) {
+            int[] grown = new int[m * 2];
+            System.arraycopy(marks, 0, grown, 0, m);
+            marks = grown;
+        }
+        marks[m] = vector3fTop;
+        marks[m + 1] = approxVector3fTop;
+        marks[m + 2] = vector2fTop;
+        marks[m + 3] = approxVector2fTop;
+        marks[m + 4] = array3Top;
+        marks[m + 5] = approxArray3Top;
+        depth++;
+    }
+
+    /**
+     * Closes the innermost scope, giving back everything taken within it.
+     * 
+     * @throws IllegalStateException
+     *             if no scope is open.
+     */
+    public void pop() {
+        if (depth == 0)
+            throw new IllegalStateException("pop without push");
+        depth--;
+        int m = depth * POOLS;
+        vector3fTop = marks[m];
+        approxVector3fTop = marks[m + 1];
+        vector2fTop = marks[m + 2];
+        approxVector2fTop = marks[m + 3];
+        array3Top = marks[m + 4];
+        approxArray3Top = marks[m + 5];
+    }
+
+    /**
+     * @return the number of scopes open.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return a scratch vector, until the current scope is popped.
+     */
+    public Vector3f vector3f() {
+        checkScope();
+        if (vector3fTop == vector3f.length) {
+            Vector3f[] grown = new Vector3f[vector3fTop * 2];
+            System.arraycopy(vector3f, 0, grown, 0, vector3fTop);
+            vector3f = grown;
+        }
+        Vector3f v = vector3f[vector3fTop];
+        if (v == null)
+            v = vector3f[vector3fTop] = new Vector3f();
+        vector3fTop++;
+        return v;
+    }
+
+    /**
+     * @return an approximate scratch vector, until the current scope is
+     *         popped.
+     */
+    public @Approx Vector3f approxVector3f() {
+        checkScope();
+        if (approxVector3fTop == approxVector3f.length) {
+            @Approx Vector3f[] grown = new @Approx Vector3f[approxVector3fTop * 2];
+            System.arraycopy(approxVector3f, 0, grown, 0, approxVector3fTop);
+            approxVector3f = grown;
+        }
+        @Approx Vector3f v = approxVector3f[approxVector3fTop];
+        if (v == null)
+            v = approxVector3f[approxVector3fTop] = new @Approx Vector3f();
+        approxVector3fTop++;
+        return v;
+    }
+
+    /**
+     * @return a scratch vector, until the current scope is popped.
+     */
+    public Vector2f vector2f() {
+        checkScope();
+        if (vector2fTop == vector2f.length) {
+            Vector2f[] grown = new Vector2f[vector2fTop * 2];
+            System.arraycopy(vector2f, 0, grown, 0, vector2fTop);
+            vector2f = grown;
+        }
+        Vector2f v = vector2f[vector2fTop];
+        if (v == null)
+            v = vector2f[vector2fTop] = new Vector2f();
+        vector2fTop++;
+        return v;
+    }
+
+    /**
+     * @return an approximate scratch vector, until the current scope is
+     *         popped.
+     */
+    public @Approx Vector2f approxVector2f() {
+        checkScope();
+        if (approxVector2fTop == approxVector2f.length) {
+            @Approx Vector2f[] grown = new @Approx Vector2f[approxVector2fTop * 2];
+            System.arraycopy(approxVector2f, 0, grown, 0, approxVector2fTop);
+            approxVector2f = grown;
+        }
+        @Approx Vector2f v = approxVector2f[approxVector2fTop];
+        if (v == null)
+            v = approxVector2f[approxVector2fTop] = new @Approx Vector2f();
+        approxVector2fTop++;
+        return v;
+    }
+
+    /**
+     * @return a scratch array of three floats, as Vector3f.toArray fills,
+     *         until the current scope is popped.
+     */
+    public float[] array3() {
+        checkScope();
+        if (array3Top == array3.length) {
+            float[][] grown = new float[array3Top * 2][];
+            System.arraycopy(array3, 0, grown, 0, array3Top);
+            array3 = grown;
+        }
+        float[] a = array3[array3Top];
+        if (a == null)
+            a = array3[array3Top] = new float[3];
+        array3Top++;
+        return a;
+    }
+
+    /**
+     * @return an approximate scratch array of three floats, until the
+     *         current scope is popped.
+     */
+    public @Approx float[] approxArray3() {
+        checkScope();
+        if (approxArray3Top == approxArray3.length) {
+            @Approx float[][] grown = new @Approx float[approxArray3Top * 2][];
+            System.arraycopy(approxArray3, 0, grown, 0, approxArray3Top);
+            approxArray3 = grown;
+        }
+        @Approx float[] a = approxArray3[approxArray3Top];
+        if (a == null)
+            a = approxArray3[approxArray3Top] = new @Approx float[3];
+        approxArray3Top++;
+        return a;
+    }
+
+    private void checkScope() {
+        if (depth == 0)
+            throw new IllegalStateException("no scope pushed");
+    }
+}
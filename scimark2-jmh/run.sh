@@ -0,0 +1,7 @@
+#!/bin/sh
+enerjdir=../../enerj
+
+# The flops counter reports each kernel's throughput; the gc profiler adds
+# the allocation rate (gc.alloc.rate.norm is bytes per kernel invocation).
+# Extra arguments go to JMH, e.g. "./run.sh FFT -p size=large".
+java -cp target/benchmarks.jar:$enerjdir/build/enerj.jar org.openjdk.jmh.Main -prof gc "$@"
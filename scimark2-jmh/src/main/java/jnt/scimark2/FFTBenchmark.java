@@ -0,0 +1,50 @@
+package jnt.scimark2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import enerj.lang.*;
+
+/** One forward/inverse FFT round trip per invocation, as in kernel.measureFFT. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class FFTBenchmark
+{
+	@Param({ProblemSize.TINY, ProblemSize.DEFAULT, ProblemSize.LARGE})
+	public String size;
+
+	private int N;
+	private double flops;
+	private @Approx double x[];
+
+	@Setup
+	public void setup()
+	{
+		N = ProblemSize.fft(size);
+		flops = FFT.num_flops(N);
+		x = kernel.RandomVector(2*N, new Random(Constants.RANDOM_SEED));
+	}
+
+	@Benchmark
+	public @Approx double[] transform(FlopCounter counter)
+	{
+		FFT.transform(x);
+		FFT.inverse(x);
+		counter.flops += flops;
+		return x;
+	}
+
+	@Benchmark
+	public @Approx double[] transformEngine(FlopCounter counter)
+	{
+		FFTEngine.transform(x);
+		FFTEngine.inverse(x);
+		counter.flops += flops;
+		return x;
+	}
+}
@@ -0,0 +1,25 @@
+package jnt.scimark2;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+	Secondary JMH result that accumulates each kernel's num_flops() per
+	invocation, so the "flops" line of the report is the kernel's
+	floating-point throughput (flops/s) rather than invocations/s.
+*/
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class FlopCounter
+{
+	public double flops;
+
+	@Setup(Level.Iteration)
+	public void clear()
+	{
+		flops = 0;
+	}
+}
@@ -0,0 +1,56 @@
+package jnt.scimark2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import enerj.lang.*;
+
+/**
+	Copies the matrix and factors the copy on every invocation, as
+	kernel.measureLU does, so the copy is part of the measured time.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class LUBenchmark
+{
+	@Param({ProblemSize.TINY, ProblemSize.DEFAULT, ProblemSize.LARGE})
+	public String size;
+
+	private double flops;
+	private @Approx double A[][];
+	private @Approx double lu[][];
+	private int pivot[];
+
+	@Setup
+	public void setup()
+	{
+		int N = ProblemSize.lu(size);
+		flops = LU.num_flops(N);
+		A = kernel.RandomMatrix(N, N, new Random(Constants.RANDOM_SEED));
+		lu = new @Approx double[N][N];
+		pivot = new int[N];
+	}
+
+	@Benchmark
+	public @Approx double[][] factor(FlopCounter counter)
+	{
+		kernel.CopyMatrix(lu, A);
+		LU.factor(lu, pivot);
+		counter.flops += flops;
+		return lu;
+	}
+
+	@Benchmark
+	public @Approx double[][] factorBlocked(FlopCounter counter)
+	{
+		kernel.CopyMatrix(lu, A);
+		BlockedLU.factor(lu, pivot);
+		counter.flops += flops;
+		return lu;
+	}
+}
@@ -0,0 +1,40 @@
+package jnt.scimark2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import enerj.lang.*;
+
+/**
+	MonteCarlo has no problem size in Constants; the sample counts are
+	the 1492 samples kernel.measureMonteCarlo draws and a count large
+	enough for the split, parallel integration to scale.
+*/
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class MonteCarloBenchmark
+{
+	@Param({"1492", "16777216"})
+	public int samples;
+
+	@Benchmark
+	public @Approx double integrate(FlopCounter counter)
+	{
+		@Approx double pi = MonteCarlo.integrate(samples);
+		counter.flops += MonteCarlo.num_flops(samples);
+		return pi;
+	}
+
+	@Benchmark
+	public @Approx double integrateParallel(FlopCounter counter)
+	{
+		@Approx double pi = MonteCarlo.integrate(samples, Parallel.pool());
+		counter.flops += MonteCarlo.num_flops(samples);
+		return pi;
+	}
+}
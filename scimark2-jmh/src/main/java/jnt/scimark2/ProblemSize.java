@@ -0,0 +1,56 @@
+package jnt.scimark2;
+
+/**
+	Maps the JMH "size" parameter onto the problem sizes in Constants:
+	"tiny" (TINY_*), "default" (cache-contained) and "large" (LG_*,
+	out-of-cache).
+*/
+final class ProblemSize
+{
+	static final String TINY = "tiny";
+	static final String DEFAULT = "default";
+	static final String LARGE = "large";
+
+	private ProblemSize() {}
+
+	static int fft(String size)
+	{
+		return pick(size, Constants.TINY_FFT_SIZE, Constants.FFT_SIZE,
+				Constants.LG_FFT_SIZE);
+	}
+
+	static int sor(String size)
+	{
+		return pick(size, Constants.TINY_SOR_SIZE, Constants.SOR_SIZE,
+				Constants.LG_SOR_SIZE);
+	}
+
+	static int sparseM(String size)
+	{
+		return pick(size, Constants.TINY_SPARSE_SIZE_M, Constants.SPARSE_SIZE_M,
+				Constants.LG_SPARSE_SIZE_M);
+	}
+
+	static int sparseNz(String size)
+	{
+		return pick(size, Constants.TINY_SPARSE_SIZE_nz, Constants.SPARSE_SIZE_nz,
+				Constants.LG_SPARSE_SIZE_nz);
+	}
+
+	static int lu(String size)
+	{
+		return pick(size, Constants.TINY_LU_SIZE, Constants.LU_SIZE,
+				Constants.LG_LU_SIZE);
+	}
+
+	private static int pick(String size, int tiny, int normal, int large)
+	{
+		if (size.equals(TINY))
+			return tiny;
+		if (size.equals(DEFAULT))
+			return normal;
+		if (size.equals(LARGE))
+			return large;
+		throw new IllegalArgumentException("unknown problem size: " + size);
+	}
+}
@@ -0,0 +1,39 @@
+package jnt.scimark2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import enerj.lang.*;
+
+/** One SOR sweep over the grid per invocation. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SORBenchmark
+{
+	@Param({ProblemSize.TINY, ProblemSize.DEFAULT, ProblemSize.LARGE})
+	public String size;
+
+	private double flops;
+	private @Approx double G[][];
+
+	@Setup
+	public void setup()
+	{
+		int N = ProblemSize.sor(size);
+		flops = SOR.num_flops(N, N, 1);
+		G = kernel.RandomMatrix(N, N, new Random(Constants.RANDOM_SEED));
+	}
+
+	@Benchmark
+	public @Approx double[][] execute(FlopCounter counter)
+	{
+		SOR.execute(1.25, G, 1);
+		counter.flops += flops;
+		return G;
+	}
+}
@@ -0,0 +1,64 @@
+package jnt.scimark2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import enerj.lang.*;
+
+/** One sparse matrix-vector product per invocation in each of
+	SparseEngine's formats, on kernel's pattern at the large size
+	(LG_SPARSE_SIZE_M rows, LG_SPARSE_SIZE_nz nonzeros) by default.
+	The parallel variants use Parallel's pool. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SparseFormatBenchmark
+{
+	@Param({ProblemSize.LARGE})
+	public String size;
+
+	@Param({"csr", "ellpack", "sliced-ell", "blocked-csr"})
+	public String format;
+
+	private double flops;
+	private @Approx double x[];
+	private @Approx double y[];
+	private SparseEngine.Format A;
+
+	@Setup
+	public void setup()
+	{
+		int N = ProblemSize.sparseM(size);
+		int nz = ProblemSize.sparseNz(size);
+		Random R = new Random(Constants.RANDOM_SEED);
+
+		flops = SparseCompRow.num_flops(N, nz, 1);
+		x = kernel.RandomVector(N, R);
+		y = new @Approx double[N];
+		@Approx double val[] = kernel.RandomVector((nz/N)*N, R);
+		int row[] = new int[N+1];
+		int col[] = new int[(nz/N)*N];
+		kernel.SparsePattern(N, nz, row, col);
+		A = SparseEngine.create(format, val, row, col);
+	}
+
+	@Benchmark
+	public @Approx double[] matmult(FlopCounter counter)
+	{
+		A.matmult(y, x, 1);
+		counter.flops += flops;
+		return y;
+	}
+
+	@Benchmark
+	public @Approx double[] matmultParallel(FlopCounter counter)
+	{
+		A.matmult(y, x, 1, Parallel.pool());
+		counter.flops += flops;
+		return y;
+	}
+}
@@ -0,0 +1,51 @@
+package jnt.scimark2;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import enerj.lang.*;
+
+/** One sparse matrix-vector product per invocation, on kernel's CSR pattern. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Fork(1)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+public class SparseMatmultBenchmark
+{
+	@Param({ProblemSize.TINY, ProblemSize.DEFAULT, ProblemSize.LARGE})
+	public String size;
+
+	private double flops;
+	private @Approx double x[];
+	private @Approx double y[];
+	private @Approx double val[];
+	private int row[];
+	private int col[];
+
+	@Setup
+	public void setup()
+	{
+		int N = ProblemSize.sparseM(size);
+		int nz = ProblemSize.sparseNz(size);
+		Random R = new Random(Constants.RANDOM_SEED);
+
+		flops = SparseCompRow.num_flops(N, nz, 1);
+		x = kernel.RandomVector(N, R);
+		y = new @Approx double[N];
+		val = kernel.RandomVector((nz/N)*N, R);
+		row = new int[N+1];
+		col = new int[(nz/N)*N];
+		kernel.SparsePattern(N, nz, row, col);
+	}
+
+	@Benchmark
+	public @Approx double[] matmult(FlopCounter counter)
+	{
+		SparseCompRow.matmult(y, val, row, col, x, 1);
+		counter.flops += flops;
+		return y;
+	}
+}
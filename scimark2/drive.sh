@@ -0,0 +1,19 @@
+#!/bin/sh
+enerjdir=../../enerj
+driverdir=../driver
+classpath=.
+mainclass=jnt.scimark2.commandline
+
+# usage: drive.sh plan results [benchmark args...]
+# See ../driver/ExperimentDriver.java for the plan and results formats.
+plan=$1
+results=$2
+shift 2
+
+driverargs=
+if [ -n "$ENERJ_RELOAD" ]
+then
+driverargs="-reload $ENERJ_RELOAD"
+fi
+
+$enerjdir/bin/enerj -noisy -Xmx2048m -cp $classpath:$driverdir ExperimentDriver $driverargs $mainclass $plan $results -tiny "$@"
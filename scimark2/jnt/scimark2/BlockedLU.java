@@ -0,0 +1,223 @@
+package jnt.scimark2;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import enerj.lang.*;
+
+/**
+    Blocked (panel + trailing update) LU factorization with partial
+    pivoting, with the same contract as LU.factor() and LU.solve().
+
+    The matrix is processed in column panels of BLOCK columns. Each panel
+    is factored with the unblocked algorithm, the matching block row of U
+    is solved for, and the trailing submatrix gets one rank-BLOCK update.
+    That update is nearly all of the work, so it is split into row blocks
+    on the fork/join pool. Each block is swept in column tiles so the
+    panel's piece of U stays in cache.
+
+    Every element receives the same updates in the same order as in
+    LU.factor(), so both produce identical factors and pivot vectors.
+*/
+public class BlockedLU
+{
+    /** columns per panel */
+    public static final int BLOCK = 64;
+
+    /** columns of the trailing matrix swept per tile */
+    static final int TILE = 256;
+
+    /** fewest trailing rows a task updates before it stops splitting */
+    static final int MIN_ROWS_PER_TASK = 16;
+
+
+    /**
+        LU factorization (in place) on the shared pool.
+
+        @param A (in/out) On input, the matrix to be factored.
+            On output, the compact LU factorization.
+
+        @param pivot (out) The pivot vector records the
+            reordering of the rows of A during factorization.
+
+        @return 0, if OK, nozero value, othewise.
+    */
+    public static @Approx int factor(@Approx double[][] A, int pivot[])
+    {
+        return factor(A, pivot, BLOCK, Parallel.pool());
+    }
+
+    public static @Approx int factor(@Approx double[][] A, int pivot[],
+            int block, ForkJoinPool pool)
+    {
+        int M = A.length;
+        int N = A[0].length;
+
+        int minMN = Math.min(M,N);
+
+        for (int k=0; k<minMN; k+=block)
+        {
+            int kend = Math.min(k+block, minMN);
+
+            if (factorPanel(A, pivot, k, kend) != 0)
+                return 1;       // factorization failed because of zero pivot
+
+            if (kend < N)
+            {
+                solveBlockRow(A, k, kend);
+
+                if (kend < M)
+                {
+                    int grain = Math.max(MIN_ROWS_PER_TASK,
+                            (M-kend) / (4 * pool.getParallelism()));
+                    pool.invoke(new TrailingUpdate(A, k, kend, kend, M, grain));
+                }
+            }
+        }
+
+        return 0;
+    }
+
+    /**
+        Solve a linear system, using a prefactored matrix
+            in LU form. Identical to LU.solve().
+    */
+    public static void solve(@Approx double[][] LU, int pvt[], @Approx double b[])
+    {
+        jnt.scimark2.LU.solve(LU, pvt, b);
+    }
+
+
+    /* Unblocked factorization of columns k..kend-1, updating only those
+       columns of the rows below. Rows are swapped whole, so the columns
+       to the left (L) and right (trailing) move with them. */
+    static @Approx int factorPanel(@Approx double[][] A, int pivot[],
+            int k, int kend)
+    {
+        int M = A.length;
+
+        for (int j=k; j<kend; j++)
+        {
+            // find pivot in column j and  test for singularity.
+
+            int jp=j;
+
+            @Approx double t = ApproxMath.abs(A[j][j]);
+            for (int i=j+1; i<M; i++)
+            {
+                @Approx double ab = ApproxMath.abs(A[i][j]);
+                if (Endorsements.endorse(ab > t))
+                {
+                    jp = i;
+                    t = ab;
+                }
+            }
+
+            pivot[j] = jp;
+
+            if (Endorsements.endorse( A[jp][j] == 0 ))
+                return 1;
+
+            if (jp != j)
+            {
+                // swap rows j and jp
+                @Approx double tA[] = A[j];
+                A[j] = A[jp];
+                A[jp] = tA;
+            }
+
+            if (j<M-1)                // compute elements j+1:M of jth column
+            {
+                @Approx double recp =  1.0 / A[j][j];
+
+                for (int i=j+1; i<M; i++)
+                    A[i][j] *= recp;
+            }
+
+            // rank-1 update restricted to the rest of the panel
+            @Approx double Aj[] = A[j];
+            for (int ii=j+1; ii<M; ii++)
+            {
+                @Approx double Aii[] = A[ii];
+                @Approx double AiiJ = Aii[j];
+                for (int jj=j+1; jj<kend; jj++)
+                    Aii[jj] -= AiiJ * Aj[jj];
+            }
+        }
+
+        return 0;
+    }
+
+    /* U12 = inv(L11) * A12: forward substitution with the unit lower
+       triangle of the panel, over the columns right of the panel. */
+    static void solveBlockRow(@Approx double[][] A, int k, int kend)
+    {
+        int N = A[0].length;
+
+        for (int j=k; j<kend; j++)
+        {
+            @Approx double Aj[] = A[j];
+            for (int ii=j+1; ii<kend; ii++)
+            {
+                @Approx double Aii[] = A[ii];
+                @Approx double AiiJ = Aii[j];
+                for (int jj=kend; jj<N; jj++)
+                    Aii[jj] -= AiiJ * Aj[jj];
+            }
+        }
+    }
+
+    /* A22 -= L21 * U12 for trailing rows lo..hi-1, swept in column tiles. */
+    static void updateRows(@Approx double[][] A, int k, int kend,
+            int lo, int hi)
+    {
+        int N = A[0].length;
+
+        for (int c0=kend; c0<N; c0+=TILE)
+        {
+            int c1 = Math.min(c0+TILE, N);
+            for (int ii=lo; ii<hi; ii++)
+            {
+                @Approx double Aii[] = A[ii];
+                for (int p=k; p<kend; p++)
+                {
+                    @Approx double AiiP = Aii[p];
+                    @Approx double Ap[] = A[p];
+                    for (int jj=c0; jj<c1; jj++)
+                        Aii[jj] -= AiiP * Ap[jj];
+                }
+            }
+        }
+    }
+
+    static final class TrailingUpdate extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final @Approx double[][] A;
+        private final int k, kend, lo, hi, grain;
+
+        TrailingUpdate(@Approx double[][] A, int k, int kend,
+                int lo, int hi, int grain)
+        {
+            this.A = A;
+            this.k = k;
+            this.kend = kend;
+            this.lo = lo;
+            this.hi = hi;
+            this.grain = grain;
+        }
+
+        protected void compute()
+        {
+            if (hi - lo <= grain)
+            {
+                updateRows(A, k, kend, lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new TrailingUpdate(A, k, kend, lo, mid, grain),
+                    new TrailingUpdate(A, k, kend, mid, hi, grain));
+        }
+    }
+}
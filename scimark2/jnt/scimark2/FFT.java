@@ -17,6 +17,14 @@ import enerj.lang.*;
 
 public class FFT {
 
+  public static final double num_flops(int N)
+  {
+	 double Nd = (double) N;
+	 double logN = (double) log2(N);
+
+	 return (5.0*Nd-2)*logN + 2*(Nd+1);
+   }
+
   /** Compute Fast Fourier Transform of (complex) data, in place.*/
   public static void transform (@Approx double data[]) {
     transform_internal(data, -1); }
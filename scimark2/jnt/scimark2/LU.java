@@ -14,6 +14,15 @@ import enerj.lang.*;
 */
 public class LU 
 {
+    public static final double num_flops(int N)
+    {
+        // rougly 2/3*N^3
+
+        double Nd = (double) N;
+
+        return (2.0 * Nd*Nd*Nd/ 3.0);
+    }
+
     /**
         Returns a <em>copy</em> of the compact LU factorization.
         (useful mainly for debugging.)
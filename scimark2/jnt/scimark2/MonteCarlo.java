@@ -1,5 +1,8 @@
 package jnt.scimark2;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
 import enerj.lang.*;
 
 /**
@@ -35,6 +38,14 @@ public class MonteCarlo
 {
 	final static int SEED = 113;
 
+	public static final double num_flops(int Num_samples)
+	{
+		// 3 flops in x^2+y^2 and 1 flop in random routine
+
+		return ((double) Num_samples)* 4.0;
+
+	}
+
 
 	public static final @Approx double integrate(int Num_samples)
 	{
@@ -56,4 +67,82 @@ public class MonteCarlo
 	}
 
 
+	/** samples per piece of the split integration; piece c draws from
+		SplitRandom(SEED).split(c) */
+	public static final int SAMPLES_PER_PIECE = 1 << 16;
+
+	/** fewest pieces a task counts before it stops splitting */
+	static final int MIN_PIECES_PER_TASK = 4;
+
+	/**
+		Estimates Pi from Num_samples samples split into pieces of
+		SAMPLES_PER_PIECE, each drawn from its own SplitRandom stream,
+		counted on the pool (or sequentially if pool is null) and summed.
+		The pieces do not depend on the pool, so neither does the result.
+	*/
+	public static final @Approx double integrate(long Num_samples,
+			ForkJoinPool pool)
+	{
+		SplitRandom R = new SplitRandom(SEED);
+		long pieces = (Num_samples + SAMPLES_PER_PIECE - 1) / SAMPLES_PER_PIECE;
+
+		long under_curve;
+		if (pool == null)
+			under_curve = countPieces(R, Num_samples, 0, pieces);
+		else
+			under_curve = pool.invoke(new Count(R, Num_samples, 0, pieces))
+					.longValue();
+
+		return ((double) under_curve / Num_samples) * 4.0;
+	}
+
+	/* points under the curve in pieces lo..hi-1 */
+	static long countPieces(SplitRandom R, long Num_samples, long lo, long hi)
+	{
+		long under_curve = 0;
+		for (long piece=lo; piece<hi; piece++)
+		{
+			SplitRandom P = R.split(piece);
+			long n = Math.min(SAMPLES_PER_PIECE,
+					Num_samples - piece * SAMPLES_PER_PIECE);
+			for (long count=0; count<n; count++)
+			{
+				@Approx double x= P.nextDouble();
+				@Approx double y= P.nextDouble();
+
+				if (Endorsements.endorse(x*x + y*y <= 1.0))
+					 under_curve ++;
+			}
+		}
+		return under_curve;
+	}
+
+	static final class Count extends RecursiveTask<Long>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final SplitRandom R;
+		private final long Num_samples, lo, hi;
+
+		Count(SplitRandom R, long Num_samples, long lo, long hi)
+		{
+			this.R = R;
+			this.Num_samples = Num_samples;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected Long compute()
+		{
+			if (hi - lo <= MIN_PIECES_PER_TASK)
+				return Long.valueOf(countPieces(R, Num_samples, lo, hi));
+			long mid = (lo + hi) >>> 1;
+			Count left = new Count(R, Num_samples, lo, mid);
+			left.fork();
+			long right = new Count(R, Num_samples, mid, hi).compute().longValue();
+			return Long.valueOf(left.join().longValue() + right);
+		}
+	}
+
+
 }
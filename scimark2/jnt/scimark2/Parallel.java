@@ -0,0 +1,38 @@
+package jnt.scimark2;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+	Fork/join pool shared by the parallel kernels. The pool is created
+	lazily with one worker per available processor unless setThreads()
+	was called first (commandline's -threads option).
+*/
+public class Parallel
+{
+	private static int threads = Runtime.getRuntime().availableProcessors();
+	private static ForkJoinPool pool = null;
+
+	public static synchronized void setThreads(int n)
+	{
+		if (n < 1)
+			throw new IllegalArgumentException("thread count must be positive: " + n);
+		if (pool != null && n != threads)
+		{
+			pool.shutdown();
+			pool = null;
+		}
+		threads = n;
+	}
+
+	public static synchronized int threads()
+	{
+		return threads;
+	}
+
+	public static synchronized ForkJoinPool pool()
+	{
+		if (pool == null)
+			pool = new ForkJoinPool(threads);
+		return pool;
+	}
+}
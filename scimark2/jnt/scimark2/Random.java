@@ -4,6 +4,10 @@ import enerj.lang.*;
 /* Random.java based on Java Numerical Toolkit (JNT) Random.UniformSequence
 	class.  We do not use Java's own java.util.Random so that we can compare
 	results with equivalent C and Fortran coces.
+
+	Instances are not synchronized: each generator belongs to one thread.
+	Parallel kernels draw from SplitRandom, whose streams can be split
+	reproducibly across threads.
 */
 
 public class Random {
@@ -115,7 +119,7 @@ public class Random {
    Returns the next random number in the sequence.
 */
 // EnerJ TODO
-  public final synchronized @Approx double nextDouble () {
+  public final @Approx double nextDouble () {
 
     int k;
     double nextValue;
@@ -143,7 +147,7 @@ public class Random {
    Returns the next N random numbers in the sequence, as
    a vector.
 */
-  public final synchronized void nextDoubles (double x[]) 
+  public final void nextDoubles (double x[]) 
   {
 
 	int N = x.length;
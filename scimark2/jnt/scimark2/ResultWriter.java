@@ -0,0 +1,244 @@
+package jnt.scimark2;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import enerj.lang.*;
+
+/**
+	Destination of the kernels' result vectors.
+
+	<P>
+	text() writes the lines the kernels have always printed,
+	"tag: v0 v1 ... ", through one buffered writer instead of a
+	print call per element.
+
+	<P>
+	binary() writes them to a memory-mapped file, little-endian:
+	<pre>
+	file   = "SCIRES01" record*
+	record = int32 taglength, tag (UTF-8), int64 count, count * float64
+	</pre>
+	A scalar is a record with count 1.
+*/
+public abstract class ResultWriter
+{
+	/** first eight bytes of a binary result file */
+	public static final String MAGIC = "SCIRES01";
+
+	public static ResultWriter text(PrintStream out)
+	{
+		return new Text(out);
+	}
+
+	public static ResultWriter binary(String filename) throws IOException
+	{
+		return new Binary(filename);
+	}
+
+	/** x[off..off+len-1] under the given tag */
+	public abstract void vector(String tag, @Approx double x[], int off,
+			int len);
+
+	public void vector(String tag, @Approx double x[])
+	{
+		vector(tag, x, 0, x.length);
+	}
+
+	/** the rows of A, one after another, as a single vector */
+	public abstract void matrix(String tag, @Approx double A[][]);
+
+	public abstract void scalar(String tag, @Approx double value);
+
+	public abstract void flush();
+
+	/** flushes, and releases the file of a binary writer */
+	public abstract void close();
+
+
+	static final class Text extends ResultWriter
+	{
+		private final BufferedWriter out;
+
+		Text(PrintStream out)
+		{
+			this.out = new BufferedWriter(new OutputStreamWriter(out), 1 << 16);
+		}
+
+		public void vector(String tag, @Approx double x[], int off, int len)
+		{
+			try
+			{
+				out.write(tag);
+				out.write(": ");
+				values(x, off, len);
+				out.newLine();
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+
+		public void matrix(String tag, @Approx double A[][])
+		{
+			try
+			{
+				out.write(tag);
+				out.write(": ");
+				for (int i=0; i<A.length; i++)
+					values(A[i], 0, A[i].length);
+				out.newLine();
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+
+		private void values(@Approx double x[], int off, int len)
+				throws IOException
+		{
+			for (int i=off; i<off+len; i++)
+			{
+				out.write(Double.toString(Endorsements.endorse(x[i])));
+				out.write(' ');
+			}
+		}
+
+		public void scalar(String tag, @Approx double value)
+		{
+			try
+			{
+				out.write(tag);
+				out.write(": ");
+				out.write(Double.toString(Endorsements.endorse(value)));
+				out.newLine();
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+
+		public void flush()
+		{
+			try
+			{
+				out.flush();
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+
+		/* leaves the underlying stream (usually System.out) open */
+		public void close()
+		{
+			flush();
+		}
+	}
+
+
+	/* Each record is written through its own mapping of the next
+		bytes of the file. */
+	static final class Binary extends ResultWriter
+	{
+		private final RandomAccessFile file;
+		private final FileChannel channel;
+		private long position = 0;
+
+		Binary(String filename) throws IOException
+		{
+			file = new RandomAccessFile(filename, "rw");
+			file.setLength(0);
+			channel = file.getChannel();
+
+			byte magic[] = MAGIC.getBytes("US-ASCII");
+			map(magic.length).put(magic);
+		}
+
+		private MappedByteBuffer map(long size)
+		{
+			try
+			{
+				MappedByteBuffer buf =
+					channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+				buf.order(ByteOrder.LITTLE_ENDIAN);
+				position += size;
+				return buf;
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+
+		private MappedByteBuffer header(String tag, long count)
+		{
+			byte name[];
+			try
+			{
+				name = tag.getBytes("UTF-8");
+			}
+			catch (java.io.UnsupportedEncodingException e)
+			{
+				throw new RuntimeException(e);
+			}
+			MappedByteBuffer buf = map(4 + name.length + 8 + 8*count);
+			buf.putInt(name.length);
+			buf.put(name);
+			buf.putLong(count);
+			return buf;
+		}
+
+		public void vector(String tag, @Approx double x[], int off, int len)
+		{
+			MappedByteBuffer buf = header(tag, len);
+			for (int i=off; i<off+len; i++)
+				buf.putDouble(Endorsements.endorse(x[i]));
+		}
+
+		public void matrix(String tag, @Approx double A[][])
+		{
+			long count = 0;
+			for (int i=0; i<A.length; i++)
+				count += A[i].length;
+
+			MappedByteBuffer buf = header(tag, count);
+			for (int i=0; i<A.length; i++)
+				for (int j=0; j<A[i].length; j++)
+					buf.putDouble(Endorsements.endorse(A[i][j]));
+		}
+
+		public void scalar(String tag, @Approx double value)
+		{
+			header(tag, 1).putDouble(Endorsements.endorse(value));
+		}
+
+		/* mapped writes reach the file without flushing */
+		public void flush()
+		{
+		}
+
+		public void close()
+		{
+			try
+			{
+				channel.close();
+				file.close();
+			}
+			catch (IOException e)
+			{
+				throw new RuntimeException(e);
+			}
+		}
+	}
+}
@@ -1,9 +1,24 @@
 package jnt.scimark2;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import enerj.lang.*;
 
 public class SOR
 {
+	// fewest interior rows a red-black task sweeps before it stops splitting
+	static final int MIN_ROWS_PER_TASK = 8;
+
+	public static final double num_flops(int M, int N, int num_iterations)
+	{
+		double Md = (double) M;
+		double Nd = (double) N;
+		double num_iterD = (double) num_iterations;
+
+		return (Md-1)*(Nd-1)*num_iterD*6.0;
+	}
+
 
 	public static final void execute(@Approx double omega,
 	        @Approx double[][] G,
@@ -32,5 +47,116 @@ public class SOR
 			}
 		}
 	}
+
+	/* Red-black (checkerboard) SOR. Each iteration first updates every
+		interior point with (i+j) even, then every point with (i+j) odd.
+		A point only reads neighbours of the other colour, so each
+		half-sweep can be split into row blocks that run on the pool
+		without synchronization. The iterates differ from the
+		lexicographic sweep in execute(), but both converge to the same
+		solution at the same asymptotic rate; compare them with residual().
+	*/
+	public static final void executeRedBlack(@Approx double omega,
+	        @Approx double[][] G,
+	        int num_iterations,
+	        ForkJoinPool pool)
+	{
+		int M = G.length;
+
+		@Approx double omega_over_four = omega * 0.25;
+		@Approx double one_minus_omega = 1.0 - omega;
+
+		int grain = Math.max(MIN_ROWS_PER_TASK,
+				(M-2) / (4 * pool.getParallelism()));
+
+		for (int p=0; p<num_iterations; p++)
+		{
+			for (int color=0; color<2; color++)
+				pool.invoke(new RedBlackSweep(G, color, omega_over_four,
+						one_minus_omega, 1, M-1, grain));
+		}
+	}
+
+	/* Largest absolute change a further Jacobi update would make at any
+		interior point, i.e. the max-norm of the discrete Laplacian residual
+		scaled by 1/4. */
+	public static final @Approx double residual(@Approx double[][] G)
+	{
+		int Mm1 = G.length-1;
+		int Nm1 = G[0].length-1;
+
+		@Approx double max = 0.0;
+		for (int i=1; i<Mm1; i++)
+		{
+			@Approx double[] Gi = G[i];
+			@Approx double[] Gim1 = G[i-1];
+			@Approx double[] Gip1 = G[i+1];
+			for (int j=1; j<Nm1; j++)
+			{
+				@Approx double r = ApproxMath.abs(0.25 * (Gim1[j] + Gip1[j]
+						+ Gi[j-1] + Gi[j+1]) - Gi[j]);
+				if (Endorsements.endorse(r > max))
+					max = r;
+			}
+		}
+		return max;
+	}
+
+	static final void sweepColor(@Approx double[][] G, int color,
+	        @Approx double omega_over_four, @Approx double one_minus_omega,
+	        int lo, int hi)
+	{
+		int Nm1 = G[0].length-1;
+
+		for (int i=lo; i<hi; i++)
+		{
+			@Approx double[] Gi = G[i];
+			@Approx double[] Gim1 = G[i-1];
+			@Approx double[] Gip1 = G[i+1];
+
+			// first column j >= 1 with (i+j) % 2 == color
+			int j0 = 1 + (((i+1) ^ color) & 1);
+			for (int j=j0; j<Nm1; j+=2)
+				Gi[j] = omega_over_four * (Gim1[j] + Gip1[j] + Gi[j-1]
+							+ Gi[j+1]) + one_minus_omega * Gi[j];
+		}
+	}
+
+	static final class RedBlackSweep extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final @Approx double[][] G;
+		private final int color;
+		private final @Approx double omega_over_four;
+		private final @Approx double one_minus_omega;
+		private final int lo, hi, grain;
+
+		RedBlackSweep(@Approx double[][] G, int color,
+		        @Approx double omega_over_four, @Approx double one_minus_omega,
+		        int lo, int hi, int grain)
+		{
+			this.G = G;
+			this.color = color;
+			this.omega_over_four = omega_over_four;
+			this.one_minus_omega = one_minus_omega;
+			this.lo = lo;
+			this.hi = hi;
+			this.grain = grain;
+		}
+
+		protected void compute()
+		{
+			if (hi - lo <= grain)
+			{
+				sweepColor(G, color, omega_over_four, one_minus_omega, lo, hi);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new RedBlackSweep(G, color, omega_over_four,
+						one_minus_omega, lo, mid, grain),
+					new RedBlackSweep(G, color, omega_over_four,
+						one_minus_omega, mid, hi, grain));
+		}
+	}
 }
-			
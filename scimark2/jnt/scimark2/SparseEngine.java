@@ -0,0 +1,473 @@
+package jnt.scimark2;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import enerj.lang.*;
+
+/**
+	Sparse matrix-vector multiply in several storage formats, built from
+	the compressed-row arrays used by SparseCompRow:
+
+	<ul>
+	<li> csr: the compressed-row arrays themselves;
+	<li> ellpack / sliced-ell: rows padded to a common length, stored
+		column-major within slices of rows so the inner loop runs over
+		consecutive rows (ellpack pads all M rows to one length);
+	<li> blocked-csr: dense R x C blocks, one column index per block.
+	</ul>
+
+	Every format can run its product in parallel, with the rows split into
+	pieces of equal stored work (nonzeros, padding included) rather than
+	equal row counts.
+
+	Each row's products are summed in the same order as in
+	SparseCompRow.matmult (padding is skipped), so when the columns of
+	each row are increasing, as in kernel's pattern, all formats give the
+	same y. The one exception is blocked-csr, whose blocks multiply their
+	explicit zeros too: 0*Inf is NaN, so it matches only for finite x.
+*/
+public class SparseEngine
+{
+	/** rows per slice in the sliced ELLPACK format */
+	public static final int SLICE_HEIGHT = 32;
+
+	/** block size of the blocked format; kernel's pattern repeats each
+		row's columns over runs of consecutive rows, so blocks are tall */
+	public static final int BLOCK_ROWS = 4;
+	public static final int BLOCK_COLS = 1;
+
+	/** pieces per pool thread, so uneven pieces still balance */
+	static final int PIECES_PER_THREAD = 4;
+
+
+	public static Format csr(@Approx double val[], int row[], int col[])
+	{
+		return new CSR(val, row, col);
+	}
+
+	public static Format ellpack(@Approx double val[], int row[], int col[])
+	{
+		return new ELL(val, row, col);
+	}
+
+	public static Format slicedEll(@Approx double val[], int row[], int col[])
+	{
+		return new SlicedELL(val, row, col, SLICE_HEIGHT);
+	}
+
+	public static Format blockedCsr(@Approx double val[], int row[], int col[])
+	{
+		return new BlockedCSR(val, row, col, BLOCK_ROWS, BLOCK_COLS);
+	}
+
+	/** Format by name: csr, ellpack, sliced-ell or blocked-csr. */
+	public static Format create(String name, @Approx double val[], int row[],
+			int col[])
+	{
+		if (name.equals("csr"))
+			return csr(val, row, col);
+		if (name.equals("ellpack"))
+			return ellpack(val, row, col);
+		if (name.equals("sliced-ell"))
+			return slicedEll(val, row, col);
+		if (name.equals("blocked-csr"))
+			return blockedCsr(val, row, col);
+		throw new IllegalArgumentException("unknown sparse format: " + name);
+	}
+
+
+	/* A matrix split into units (rows, slices or block rows), with
+		work[u] the stored entries before unit u. */
+	public static abstract class Format
+	{
+		final int M;
+		final int units;
+		final int work[];
+
+		Format(int M, int units, int work[])
+		{
+			this.M = M;
+			this.units = units;
+			this.work = work;
+		}
+
+		/** y = A*x, repeated NUM_ITERATIONS times, as in
+			SparseCompRow.matmult. */
+		public void matmult(@Approx double y[], @Approx double x[],
+				int NUM_ITERATIONS)
+		{
+			for (int reps=0; reps<NUM_ITERATIONS; reps++)
+				multiply(y, x, 0, units);
+		}
+
+		/** The same, with each product split across the pool. */
+		public void matmult(@Approx double y[], @Approx double x[],
+				int NUM_ITERATIONS, ForkJoinPool pool)
+		{
+			int bounds[] = partition(work,
+					PIECES_PER_THREAD * pool.getParallelism());
+			for (int reps=0; reps<NUM_ITERATIONS; reps++)
+				pool.invoke(new Multiply(this, y, x, bounds, 0,
+						bounds.length - 1));
+		}
+
+		/** stored entries, padding included */
+		public int stored()
+		{
+			return work[units];
+		}
+
+		/* y for units lo..hi-1 */
+		abstract void multiply(@Approx double y[], @Approx double x[],
+				int lo, int hi);
+	}
+
+	/* Splits units into at most parts pieces of about equal work:
+		piece p is units bounds[p]..bounds[p+1]-1. */
+	static int[] partition(int work[], int parts)
+	{
+		int units = work.length - 1;
+		parts = Math.max(1, Math.min(parts, units));
+		long total = work[units];
+
+		int bounds[] = new int[parts+1];
+		int u = 0;
+		for (int p=1; p<parts; p++)
+		{
+			long target = total * p / parts;
+			while (u < units && work[u] < target)
+				u++;
+			bounds[p] = u;
+		}
+		bounds[parts] = units;
+		return bounds;
+	}
+
+	static final class Multiply extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private final Format A;
+		private final @Approx double y[];
+		private final @Approx double x[];
+		private final int bounds[];
+		private final int lo, hi;
+
+		Multiply(Format A, @Approx double y[], @Approx double x[],
+				int bounds[], int lo, int hi)
+		{
+			this.A = A;
+			this.y = y;
+			this.x = x;
+			this.bounds = bounds;
+			this.lo = lo;
+			this.hi = hi;
+		}
+
+		protected void compute()
+		{
+			if (hi - lo == 1)
+			{
+				A.multiply(y, x, bounds[lo], bounds[hi]);
+				return;
+			}
+			int mid = (lo + hi) >>> 1;
+			invokeAll(new Multiply(A, y, x, bounds, lo, mid),
+					new Multiply(A, y, x, bounds, mid, hi));
+		}
+	}
+
+
+	static final class CSR extends Format
+	{
+		private final @Approx double val[];
+		private final int row[];
+		private final int col[];
+
+		CSR(@Approx double val[], int row[], int col[])
+		{
+			super(row.length - 1, row.length - 1, row);
+			this.val = val;
+			this.row = row;
+			this.col = col;
+		}
+
+		void multiply(@Approx double y[], @Approx double x[], int lo, int hi)
+		{
+			for (int r=lo; r<hi; r++)
+			{
+				@Approx double sum = 0.0;
+				int rowR = row[r];
+				int rowRp1 = row[r+1];
+				for (int i=rowR; i<rowRp1; i++)
+					sum += x[ col[i] ] * val[i];
+				y[r] = sum;
+			}
+		}
+	}
+
+	/* Slice s holds rows s*height.. (h of them, h < height only for the
+		last slice), each padded to the slice's longest row. Entry j of
+		row s*height+t is at work[s] + j*h + t. The first full[s] entries
+		of every row in the slice are real. */
+	static final class SlicedELL extends Format
+	{
+		private final int height;
+		private final int row[];
+		private final int full[];
+		private final @Approx double val[];
+		private final int col[];
+
+		SlicedELL(@Approx double aval[], int row[], int acol[], int height)
+		{
+			super(row.length - 1, (row.length - 1 + height - 1) / height,
+					new int[(row.length - 1 + height - 1) / height + 1]);
+			this.height = height;
+			this.row = row;
+			full = new int[units];
+
+			for (int s=0; s<units; s++)
+			{
+				int r0 = s*height;
+				int h = Math.min(height, M - r0);
+				int width = 0;
+				int shortest = Integer.MAX_VALUE;
+				for (int t=0; t<h; t++)
+				{
+					width = Math.max(width, row[r0+t+1] - row[r0+t]);
+					shortest = Math.min(shortest, row[r0+t+1] - row[r0+t]);
+				}
+				work[s+1] = work[s] + width*h;
+				full[s] = shortest;
+			}
+
+			val = new @Approx double[work[units]];
+			col = new int[work[units]];
+			for (int s=0; s<units; s++)
+			{
+				int r0 = s*height;
+				int h = Math.min(height, M - r0);
+				for (int t=0; t<h; t++)
+				{
+					int k = work[s] + t;
+					for (int i=row[r0+t]; i<row[r0+t+1]; i++, k+=h)
+					{
+						val[k] = aval[i];
+						col[k] = acol[i];
+					}
+					// padding: zero values, column 0, never read
+				}
+			}
+		}
+
+		void multiply(@Approx double y[], @Approx double x[], int lo, int hi)
+		{
+			for (int s=lo; s<hi; s++)
+			{
+				int r0 = s*height;
+				int h = Math.min(height, M - r0);
+				int end = work[s+1];
+				int k = work[s];
+
+				for (int t=0; t<h; t++)
+					y[r0+t] = 0.0;
+				for (int j=0; j<full[s]; j++, k+=h)
+					for (int t=0; t<h; t++)
+						y[r0+t] += x[ col[k+t] ] * val[k+t];
+				// skip the padding, so that 0*x[0] can't turn an Inf or
+				// NaN in x into a NaN where csr has none
+				for (int j=full[s]; k<end; j++, k+=h)
+					for (int t=0; t<h; t++)
+						if (j < row[r0+t+1] - row[r0+t])
+							y[r0+t] += x[ col[k+t] ] * val[k+t];
+			}
+		}
+	}
+
+	/* All rows padded to the longest one: entry j of row r is at
+		j*M + r. The units are single rows, so the product splits
+		across the pool like csr. The first full entries of every row
+		are real. */
+	static final class ELL extends Format
+	{
+		private final int width;
+		private final int full;
+		private final int row[];
+		private final @Approx double val[];
+		private final int col[];
+
+		ELL(@Approx double aval[], int row[], int acol[])
+		{
+			super(row.length - 1, row.length - 1, new int[row.length]);
+			this.row = row;
+
+			int w = 0;
+			int shortest = M > 0 ? Integer.MAX_VALUE : 0;
+			for (int r=0; r<M; r++)
+			{
+				w = Math.max(w, row[r+1] - row[r]);
+				shortest = Math.min(shortest, row[r+1] - row[r]);
+			}
+			width = w;
+			full = shortest;
+			for (int r=0; r<M; r++)
+				work[r+1] = work[r] + width;
+
+			val = new @Approx double[width*M];
+			col = new int[width*M];
+			for (int r=0; r<M; r++)
+			{
+				int k = r;
+				for (int i=row[r]; i<row[r+1]; i++, k+=M)
+				{
+					val[k] = aval[i];
+					col[k] = acol[i];
+				}
+				// padding: zero values, column 0, never read
+			}
+		}
+
+		void multiply(@Approx double y[], @Approx double x[], int lo, int hi)
+		{
+			for (int r=lo; r<hi; r++)
+				y[r] = 0.0;
+			for (int j=0; j<full; j++)
+			{
+				int k = j*M;
+				for (int r=lo; r<hi; r++)
+					y[r] += x[ col[k+r] ] * val[k+r];
+			}
+			// skip the padding, as SlicedELL does
+			for (int j=full; j<width; j++)
+			{
+				int k = j*M;
+				for (int r=lo; r<hi; r++)
+					if (j < row[r+1] - row[r])
+						y[r] += x[ col[k+r] ] * val[k+r];
+			}
+		}
+	}
+
+	/* Block row b covers rows b*R..; its blocks are blockRow[b]..
+		blockRow[b+1]-1 in increasing column order. Block k starts at
+		column blockCol[k] and is stored row-major at val[k*R*C]. */
+	static final class BlockedCSR extends Format
+	{
+		private final int R, C;
+		private final int N;
+		private final int blockRow[];
+		private final int blockCol[];
+		private final @Approx double val[];
+
+		BlockedCSR(@Approx double aval[], int row[], int acol[], int R, int C)
+		{
+			super(row.length - 1, (row.length - 1 + R - 1) / R,
+					new int[(row.length - 1 + R - 1) / R + 1]);
+			this.R = R;
+			this.C = C;
+
+			int maxCol = -1;
+			for (int i=0; i<row[M]; i++)
+				maxCol = Math.max(maxCol, acol[i]);
+			N = maxCol + 1;
+
+			int seen[] = new int[(N + C - 1) / C];
+			int slot[] = new int[seen.length];
+			int cols[] = new int[seen.length];
+			blockRow = new int[units+1];
+
+			Arrays.fill(seen, -1);
+			for (int b=0; b<units; b++)
+				blockRow[b+1] = blockRow[b] + blockColumns(b, row, acol, seen, cols);
+
+			blockCol = new int[blockRow[units]];
+			val = new @Approx double[blockRow[units] * R * C];
+			for (int b=0; b<units; b++)
+				work[b+1] = blockRow[b+1] * R * C;
+
+			Arrays.fill(seen, -1);
+			for (int b=0; b<units; b++)
+			{
+				int count = blockColumns(b, row, acol, seen, cols);
+				Arrays.sort(cols, 0, count);
+				for (int q=0; q<count; q++)
+				{
+					slot[cols[q]] = blockRow[b] + q;
+					blockCol[blockRow[b] + q] = cols[q] * C;
+				}
+
+				int r0 = b*R;
+				int h = Math.min(R, M - r0);
+				for (int t=0; t<h; t++)
+					for (int i=row[r0+t]; i<row[r0+t+1]; i++)
+					{
+						int k = slot[acol[i] / C];
+						val[(k*R + t)*C + acol[i] % C] += aval[i];
+					}
+			}
+		}
+
+		/* Collects the distinct block columns of block row b into cols[],
+			marking them in seen[] with b; returns their number. */
+		private int blockColumns(int b, int row[], int acol[], int seen[],
+				int cols[])
+		{
+			int count = 0;
+			int r0 = b*R;
+			int r1 = Math.min(r0 + R, M);
+			for (int i=row[r0]; i<row[r1]; i++)
+			{
+				int bc = acol[i] / C;
+				if (seen[bc] != b)
+				{
+					seen[bc] = b;
+					cols[count++] = bc;
+				}
+			}
+			return count;
+		}
+
+		void multiply(@Approx double y[], @Approx double x[], int lo, int hi)
+		{
+			for (int b=lo; b<hi; b++)
+			{
+				int r0 = b*R;
+				int h = Math.min(R, M - r0);
+
+				if (R == 4 && C == 1 && h == 4)
+				{
+					// the default shape, with the four sums in registers
+					@Approx double y0 = 0.0, y1 = 0.0, y2 = 0.0, y3 = 0.0;
+					for (int k=blockRow[b]; k<blockRow[b+1]; k++)
+					{
+						@Approx double xc = x[ blockCol[k] ];
+						int base = 4*k;
+						y0 += xc * val[base];
+						y1 += xc * val[base+1];
+						y2 += xc * val[base+2];
+						y3 += xc * val[base+3];
+					}
+					y[r0] = y0;
+					y[r0+1] = y1;
+					y[r0+2] = y2;
+					y[r0+3] = y3;
+					continue;
+				}
+
+				for (int t=0; t<h; t++)
+					y[r0+t] = 0.0;
+				for (int k=blockRow[b]; k<blockRow[b+1]; k++)
+				{
+					int c0 = blockCol[k];
+					int w = Math.min(C, N - c0);
+					int base = k*R*C;
+					for (int t=0; t<h; t++)
+						for (int j=0; j<w; j++)
+							y[r0+t] += x[c0+j] * val[base + t*C + j];
+				}
+			}
+		}
+	}
+}
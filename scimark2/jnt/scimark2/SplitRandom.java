@@ -0,0 +1,167 @@
+package jnt.scimark2;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import enerj.lang.*;
+
+/* SplitRandom.java: a splittable generator (the SplitMix64 algorithm of
+	java.util.SplittableRandom) for work spread over several threads.
+
+	An instance holds no locks and must stay on one thread. Threads get
+	their own generators with split(index), which depends only on the
+	seed and the index, never on how far any generator has advanced or
+	on which thread asks. Work divided into numbered pieces, each drawing
+	from split(piece), therefore produces the same numbers for any thread
+	count or schedule.
+
+	The sequence is not that of jnt.scimark2.Random, which kernels keep
+	using for their sequential inputs.
+*/
+
+public final class SplitRandom {
+
+
+/* ------------------------------------------------------------------------------
+                               CLASS VARIABLES
+   ------------------------------------------------------------------------------ */
+
+  private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+  private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+  /** rows filled per task by fillRows() */
+  static final int MIN_ROWS_PER_TASK = 8;
+
+  private final long origin;    // state at construction, the base for splits
+  private final long gamma;     // odd increment
+  private long state;
+
+
+/* ------------------------------------------------------------------------------
+                                CONSTRUCTORS
+   ------------------------------------------------------------------------------ */
+
+/**
+   Initializes a sequence with a given seed.
+
+@param <B>seed</B> (int)<BR>
+
+       The seed of the random number generator.  Two sequences with the same
+       seed will be identical.
+*/
+  public SplitRandom (int seed) {
+    this(seed, GOLDEN_GAMMA);
+  }
+
+  private SplitRandom (long seed, long gamma) {
+    this.origin = seed;
+    this.gamma = gamma;
+    this.state = seed;
+  }
+
+
+/* ------------------------------------------------------------------------------
+                             PUBLIC METHODS
+   ------------------------------------------------------------------------------ */
+
+/**
+   Returns the independent generator numbered index. The same seed and
+   index always give the same sequence.
+*/
+  public SplitRandom split (long index) {
+    long s = origin + (2*index + 1) * gamma;
+    return new SplitRandom(mix64(s), mixGamma(s + gamma));
+  }
+
+/**
+   Returns the next random number in the sequence, uniform on [0,1).
+*/
+  public @Approx double nextDouble () {
+    return (nextLong() >>> 11) * DOUBLE_UNIT;
+  }
+
+/**
+   Fills x with the next x.length numbers in the sequence.
+*/
+  public void fill (@Approx double x[]) {
+    fill(x, 0, x.length);
+  }
+
+/**
+   Fills x[off..off+len-1] with the next len numbers in the sequence.
+*/
+  public void fill (@Approx double x[], int off, int len) {
+    long s = state;
+    for (int k=off; k<off+len; k++) {
+      s += gamma;
+      x[k] = (mix64(s) >>> 11) * DOUBLE_UNIT;
+    }
+    state = s;
+  }
+
+/**
+   Fills the rows of A on the pool (or sequentially if pool is null),
+   row i from split(i), so the matrix does not depend on the number of
+   threads.
+*/
+  public void fillRows (@Approx double A[][], ForkJoinPool pool) {
+    if (pool == null)
+      fillRows(this, A, 0, A.length);
+    else
+      pool.invoke(new FillRows(this, A, 0, A.length));
+  }
+
+
+/*----------------------------------------------------------------------------
+                           PRIVATE METHODS
+  ------------------------------------------------------------------------ */
+
+  private long nextLong () {
+    return mix64(state += gamma);
+  }
+
+  private static long mix64 (long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  private static long mixGamma (long z) {
+    z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+    z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+    z = (z ^ (z >>> 33)) | 1L;
+    int n = Long.bitCount(z ^ (z >>> 1));   // ensure enough bit transitions
+    return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+  }
+
+  /* rows lo..hi-1 of A */
+  static void fillRows (SplitRandom R, @Approx double A[][], int lo, int hi) {
+    for (int i=lo; i<hi; i++)
+      R.split(i).fill(A[i]);
+  }
+
+  static final class FillRows extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final SplitRandom R;
+    private final @Approx double A[][];
+    private final int lo, hi;
+
+    FillRows (SplitRandom R, @Approx double A[][], int lo, int hi) {
+      this.R = R;
+      this.A = A;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    protected void compute () {
+      if (hi - lo <= MIN_ROWS_PER_TASK) {
+        fillRows(R, A, lo, hi);
+        return;
+      }
+      int mid = (lo + hi) >>> 1;
+      invokeAll(new FillRows(R, A, lo, mid), new FillRows(R, A, mid, hi));
+    }
+  }
+
+}
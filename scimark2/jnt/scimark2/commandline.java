@@ -34,62 +34,111 @@ public class commandline
 		int LU_size = Constants.LU_SIZE;
 		
 		String benchSel = null;
+		boolean parallel = false;
+		boolean verify = false;
+		long mc_samples = kernel.DEFAULT_MC_SAMPLES;
+		String binary = null;
 
 		// look for runtime options
 
-        if (args.length > 0)
-        {
+		for (int current_arg = 0; current_arg < args.length; current_arg++)
+		{
+			String arg = args[current_arg];
 
-			if (args[0].equalsIgnoreCase("-h") || 
-						args[0].equalsIgnoreCase("-help"))
+			if (arg.equalsIgnoreCase("-h") || 
+						arg.equalsIgnoreCase("-help"))
 			{
-				System.out.println("Usage: [-large] [minimum_time]");
+				System.out.println("Usage: [-large|-tiny] [-parallel] " +
+						"[-threads N] [-samples N] [-verify] " +
+						"[-binary FILE] [fft|sor|mc|smm|lu]");
 				return;
 			}
 
-			int current_arg = 0;
-			if (args[current_arg].equalsIgnoreCase("-large"))
+			if (arg.equalsIgnoreCase("-large"))
 			{
 				FFT_size = Constants.LG_FFT_SIZE;
 				SOR_size =  Constants.LG_SOR_SIZE;
 				Sparse_size_M = Constants.LG_SPARSE_SIZE_M;
 				Sparse_size_nz = Constants.LG_SPARSE_SIZE_nz;
 				LU_size = Constants.LG_LU_SIZE;
-
-				current_arg++;
-			} else if (args[current_arg].equalsIgnoreCase("-tiny"))
+			} else if (arg.equalsIgnoreCase("-tiny"))
 			{
 			    FFT_size = Constants.TINY_FFT_SIZE;
 				SOR_size =  Constants.TINY_SOR_SIZE;
 				Sparse_size_M = Constants.TINY_SPARSE_SIZE_M;
 				Sparse_size_nz = Constants.TINY_SPARSE_SIZE_nz;
 				LU_size = Constants.TINY_LU_SIZE;
-				
-				current_arg++;
-			}
-
-			if (args.length > current_arg) {
-			    benchSel = args[current_arg];
+			} else if (arg.equalsIgnoreCase("-parallel"))
+			{
+				// use the fork/join variants of the kernels, and fill
+				// the SOR and LU matrices on the pool (see
+				// kernel.RandomMatrix)
+				parallel = true;
+			} else if (arg.equalsIgnoreCase("-threads"))
+			{
+				Parallel.setThreads(Integer.parseInt(args[++current_arg]));
+			} else if (arg.equalsIgnoreCase("-samples"))
+			{
+				// Monte Carlo sample count
+				mc_samples = Long.parseLong(args[++current_arg]);
+			} else if (arg.equalsIgnoreCase("-binary"))
+			{
+				// results to FILE, little-endian (see ResultWriter),
+				// instead of text on stdout
+				binary = args[++current_arg];
+			} else if (arg.equalsIgnoreCase("-verify"))
+			{
+				// check the parallel kernels against the sequential ones
+				// (reported on stderr so the result vectors stay intact)
+				verify = true;
+			} else
+			{
+			    benchSel = arg;
 			}
-        }
+		}
         
 
 		// run the benchmark
 
+		ResultWriter results;
+		if (binary == null)
+			results = ResultWriter.text(System.out);
+		else
+		{
+			try
+			{
+				results = ResultWriter.binary(binary);
+			}
+			catch (java.io.IOException e)
+			{
+				System.err.println("cannot write " + binary + ": " + e);
+				return;
+			}
+		}
+		kernel.setResults(results);
+
 		// double res[] = new double[6];
 		Random R = new Random(Constants.RANDOM_SEED);
 
-        if (benchSel == null || benchSel.equals("fft"))
-    		kernel.measureFFT( FFT_size, min_time, R);
-        if (benchSel == null || benchSel.equals("sor"))
-    		kernel.measureSOR( SOR_size, min_time, R);
-        if (benchSel == null || benchSel.equals("mc"))
-    		kernel.measureMonteCarlo(min_time, R);
-        if (benchSel == null || benchSel.equals("smm"))
-    		kernel.measureSparseMatmult( Sparse_size_M, 
-    		   Sparse_size_nz, min_time, R);
-        if (benchSel == null || benchSel.equals("lu"))
-    		kernel.measureLU( LU_size, min_time, R);
+		try
+		{
+			if (benchSel == null || benchSel.equals("fft"))
+				kernel.measureFFT( FFT_size, min_time, R, parallel, verify);
+			if (benchSel == null || benchSel.equals("sor"))
+				kernel.measureSOR( SOR_size, min_time, R, parallel, verify);
+			if (benchSel == null || benchSel.equals("mc"))
+				kernel.measureMonteCarlo(min_time, R, parallel, verify, mc_samples);
+			if (benchSel == null || benchSel.equals("smm"))
+				kernel.measureSparseMatmult( Sparse_size_M, 
+					Sparse_size_nz, min_time, R, parallel, verify);
+			if (benchSel == null || benchSel.equals("lu"))
+				kernel.measureLU( LU_size, min_time, R, parallel, verify);
+		}
+		finally
+		{
+			results.close();
+			kernel.setResults(null);
+		}
 
 		//res[0] = (res[1] + res[2] + res[3] + res[4] + res[5]) / 5;
 
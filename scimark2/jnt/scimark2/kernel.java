@@ -1,13 +1,38 @@
 package jnt.scimark2;
 
+import java.util.concurrent.ForkJoinPool;
+
 import enerj.lang.*;
 
 public class kernel
 {
 	// each measurement returns approx Mflops
 
+	private static ResultWriter results = null;
+
+	/* where the measurements write their result vectors; commandline
+		sets this, and anyone else gets text on System.out */
+	public static void setResults(ResultWriter writer)
+	{
+		results = writer;
+	}
+
+	/* a fallback writer is made afresh for each measurement, so that it
+		follows System.out when a driver redirects it between runs */
+	static ResultWriter results()
+	{
+		ResultWriter writer = results;
+		return writer != null ? writer : ResultWriter.text(System.out);
+	}
+
 
 	public static double measureFFT(int N, double mintime, Random R)
+	{
+		return measureFFT(N, mintime, R, false, false);
+	}
+
+	public static double measureFFT(int N, double mintime, Random R,
+			boolean parallel, boolean verify)
 	{
 		// initialize FFT data as complex (N real/img pairs)
 
@@ -15,60 +40,206 @@ public class kernel
 		@Approx double oldx[] = NewVectorCopy(x);
 		long cycles = 100;
 
+		if (verify && parallel)
+			verifyFFT(oldx);
+
 		for (int i=0; i<cycles; i++)
 		{
-			FFT.transform(x);	// forward transform
-			FFT.inverse(x);		// backward transform
+			if (parallel)
+			{
+				FFTEngine.transform(x);
+				FFTEngine.inverse(x);
+			}
+			else
+			{
+				FFT.transform(x);	// forward transform
+				FFT.inverse(x);		// backward transform
+			}
 		}
 		// approx Mflops
 
 		//final double EPS = 1.0e-10;
 		//if ( FFT.test(x) / N > EPS )
 		//	return 0.0;
-		System.out.print("FFT vector: ");
-		for (int i = 0; i < N; ++i) {
-		    System.out.print(Endorsements.endorse(x[i]) + " ");
-		}
-		System.out.println("");
+		ResultWriter writer = results();
+		writer.vector("FFT vector", x, 0, N);
+		writer.flush();
 		
 		return 0.0;
 	}
 
 
+	/* The engine uses exact twiddles and a different operation order,
+		so compare its forward transform with FFT.transform to rounding
+		error, relative to the size of the spectrum. */
+	private static void verifyFFT(@Approx double x[])
+	{
+		final double tolerance = 1.0e-10;
+
+		@Approx double seq[] = NewVectorCopy(x);
+		@Approx double fast[] = NewVectorCopy(x);
+		FFT.transform(seq);
+		FFTEngine.transform(fast);
+
+		double diff = 0.0;
+		double norm = 0.0;
+		for (int i=0; i<x.length; i++)
+		{
+			double d = Endorsements.endorse(fast[i] - seq[i]);
+			double s = Endorsements.endorse(seq[i]);
+			diff += d*d;
+			norm += s*s;
+		}
+		double error = norm == 0.0 ? Math.sqrt(diff) : Math.sqrt(diff/norm);
+		System.err.println("FFT check: relative error " + error +
+				" against FFT.transform" +
+				(error <= tolerance ? "" : " FAILED"));
+	}
+
+
 	public static double measureSOR(int N, double min_time, Random R)
 	{
-		@Approx double G[][] = RandomMatrix(N, N, R);
+		return measureSOR(N, min_time, R, false, false);
+	}
+
+	public static double measureSOR(int N, double min_time, Random R,
+			boolean parallel, boolean verify)
+	{
+		@Approx double G[][];
+		if (parallel)
+		{
+			G = RandomMatrix(N, N, SOR_STREAM, Parallel.pool());
+			if (verify)
+				verifyRandomMatrix("SOR", G, SOR_STREAM);
+		}
+		else
+			G = RandomMatrix(N, N, R);
 
 		int cycles=100;
-		SOR.execute(1.25, G, cycles);
+		if (parallel)
+			SOR.executeRedBlack(1.25, G, cycles, Parallel.pool());
+		else
+			SOR.execute(1.25, G, cycles);
+
+		if (verify && parallel)
+			verifySOR();
+
 		// approx Mflops
 		
-		System.out.print("SOR values: ");
-		for (int i = 0; i < N; ++i) {
-		    for (int j = 0; j < N; ++j) {
-		        System.out.print(Endorsements.endorse(G[i][j]) + " ");
-		    }
-		}
-		System.out.println("");
+		ResultWriter writer = results();
+		writer.matrix("SOR values", G);
+		writer.flush();
 		
 		return 0.0;
 	}
 
+	/* Red-black and lexicographic SOR produce different iterates, so
+		compare them where they must agree: run both to convergence on a
+		small grid and check that they reach the same solution in a
+		similar number of sweeps. Reported on stderr. */
+	private static void verifySOR()
+	{
+		final int N = 64;
+		final int step = 10;
+		final int max_iterations = 100000;
+		final double tolerance = 1.0e-12;
+
+		// own generator, so verifying does not perturb later kernels' inputs
+		@Approx double seq[][] = RandomMatrix(N, N,
+				new Random(Constants.RANDOM_SEED));
+		@Approx double rb[][] = LU.new_copy(seq);
+
+		int seqIterations = 0;
+		while (seqIterations < max_iterations &&
+				Endorsements.endorse(SOR.residual(seq) > tolerance))
+		{
+			SOR.execute(1.25, seq, step);
+			seqIterations += step;
+		}
+		int rbIterations = 0;
+		while (rbIterations < max_iterations &&
+				Endorsements.endorse(SOR.residual(rb) > tolerance))
+		{
+			SOR.executeRedBlack(1.25, rb, step, Parallel.pool());
+			rbIterations += step;
+		}
+
+		@Approx double diff = 0.0;
+		for (int i=0; i<N; i++)
+			for (int j=0; j<N; j++)
+				diff = ApproxMath.max(diff, ApproxMath.abs(seq[i][j] - rb[i][j]));
+
+		// the error left at a given residual grows like N^2 times it
+		boolean ok = Endorsements.endorse(diff < N * N * tolerance) &&
+				rbIterations <= 2 * seqIterations;
+		System.err.println("SOR check: sequential converged in " +
+				seqIterations + " sweeps, red-black in " + rbIterations +
+				", max difference " + Endorsements.endorse(diff) +
+				(ok ? "" : " FAILED"));
+	}
+
 	public static double measureMonteCarlo(double min_time, Random R)
 	{
-		int cycles=1492;
+		return measureMonteCarlo(min_time, R, false, false, DEFAULT_MC_SAMPLES);
+	}
+
+	/** samples drawn by measureMonteCarlo unless told otherwise */
+	public static final int DEFAULT_MC_SAMPLES = 1492;
+
+	/* The parallel version splits the samples into SplitRandom streams
+		and reports its rate (samples/second) on stderr. */
+	public static double measureMonteCarlo(double min_time, Random R,
+			boolean parallel, boolean verify, long samples)
+	{
 		@Approx double out = 0.0;
-		out = MonteCarlo.integrate(cycles);
+		if (parallel)
+		{
+			long start = System.nanoTime();
+			out = MonteCarlo.integrate(samples, Parallel.pool());
+			double seconds = (System.nanoTime() - start) * 1.0e-9;
+
+			System.err.println("MonteCarlo rate: " + samples + " samples, " +
+					Parallel.threads() + " threads, " + seconds + " s, " +
+					(samples / seconds) + " samples/s");
+			if (verify)
+				verifyMonteCarlo(samples, out);
+		}
+		else
+		{
+			if (samples > Integer.MAX_VALUE)
+				throw new IllegalArgumentException(
+						"too many samples for the sequential kernel: " + samples);
+			out = MonteCarlo.integrate((int) samples);
+		}
 		
-		System.out.println("MonteCarlo out: " + Endorsements.endorse(out));
+		ResultWriter writer = results();
+		writer.scalar("MonteCarlo out", out);
+		writer.flush();
 		
 		// approx Mflops
 		return 0.0;
 	}
 
+	/* Every piece has its own stream, so counting them on one thread
+		must give exactly the same estimate. */
+	private static void verifyMonteCarlo(long samples, @Approx double out)
+	{
+		@Approx double seq = MonteCarlo.integrate(samples, null);
+		boolean ok = Endorsements.endorse(seq == out);
+		System.err.println("MonteCarlo check: " + Endorsements.endorse(out) +
+				(ok ? " matches" : " differs from") + " the sequential " +
+				Endorsements.endorse(seq) + (ok ? "" : " FAILED"));
+	}
+
 
 	public static double measureSparseMatmult(int N, int nz, 
 			double min_time, Random R)
+	{
+		return measureSparseMatmult(N, nz, min_time, R, false, false);
+	}
+
+	public static double measureSparseMatmult(int N, int nz,
+			double min_time, Random R, boolean parallel, boolean verify)
 	{
 		// initialize vector multipliers and storage for result
 		// y = A*y;
@@ -105,41 +276,83 @@ public class kernel
 		int col[] = new int[anz];
 		int row[] = new int[N+1];
 
-		row[0] = 0;	
-		for (int r=0; r<N; r++)
-		{
-			// initialize elements for row r
-
-			int rowr = row[r];
-			row[r+1] = rowr + nr;
-			int step = r/ nr;
-			if (step < 1) step = 1;   // take at least unit steps
-
-
-			for (int i=0; i<nr; i++)
-				col[rowr+i] = i*step;
-				
-		}
+		SparsePattern(N, nz, row, col);
 
 		int cycles=100;
-    	SparseCompRow.matmult(y, val, row, col, x, cycles);
+		if (parallel)
+			SparseEngine.csr(val, row, col).matmult(y, x, cycles,
+					Parallel.pool());
+		else
+	    	SparseCompRow.matmult(y, val, row, col, x, cycles);
+
+		if (verify && parallel)
+			verifySparseMatmult(val, row, col, x);
 		
-		System.out.print("SparseMatMult vector: ");
-		for (int i = 0; i < N; ++i) {
-		    System.out.print(Endorsements.endorse(y[i]) + " ");
-		}
-		System.out.println("");
+		ResultWriter writer = results();
+		writer.vector("SparseMatMult vector", y);
+		writer.flush();
 		
 		// approx Mflops
 		return 0.0;
 	}
 
 
+	/* All formats sum each row in SparseCompRow's order, and kernel's
+		columns are increasing within a row, so every format, sequential
+		or parallel, must reproduce its y exactly. */
+	private static void verifySparseMatmult(@Approx double val[], int row[],
+			int col[], @Approx double x[])
+	{
+		final String formats[] = {"csr", "ellpack", "sliced-ell", "blocked-csr"};
+		int N = row.length - 1;
+
+		@Approx double seq[] = new @Approx double[N];
+		SparseCompRow.matmult(seq, val, row, col, x, 1);
+
+		@Approx double y[] = new @Approx double[N];
+		StringBuffer report = new StringBuffer("SparseMatmult check:");
+		boolean ok = true;
+		for (int f=0; f<formats.length; f++)
+		{
+			SparseEngine.Format A = SparseEngine.create(formats[f], val, row, col);
+			int mismatches = 0;
+			for (int p=0; p<2; p++)
+			{
+				if (p == 0)
+					A.matmult(y, x, 1);
+				else
+					A.matmult(y, x, 1, Parallel.pool());
+				for (int i=0; i<N; i++)
+					if (Endorsements.endorse(y[i] != seq[i]))
+						mismatches++;
+			}
+			report.append(" " + formats[f] + " " + mismatches);
+			ok = ok && mismatches == 0;
+		}
+		System.err.println(report + " entries differ from SparseCompRow.matmult" +
+				(ok ? "" : " FAILED"));
+	}
+
+
 	public static double measureLU(int N, double min_time, Random R)
+	{
+		return measureLU(N, min_time, R, false, false);
+	}
+
+	public static double measureLU(int N, double min_time, Random R,
+			boolean parallel, boolean verify)
 	{
 		// compute approx Mlfops, or O if LU yields large errors
 
-		@Approx double A[][] = RandomMatrix(N, N,  R);
+		@Approx double A[][];
+		if (parallel)
+		{
+			A = RandomMatrix(N, N, LU_STREAM, Parallel.pool());
+			if (verify)
+				verifyRandomMatrix("LU", A, LU_STREAM);
+		}
+		else
+			A = RandomMatrix(N, N,  R);
 		@Approx double lu[][] = new @Approx double[N][N];
 		int pivot[] = new int[N];
 
@@ -147,9 +360,15 @@ public class kernel
 		for (int i=0; i<cycles; i++)
 		{
 			CopyMatrix(lu, A);
-			LU.factor((@Approx double [][])lu, pivot);
+			if (parallel)
+				BlockedLU.factor((@Approx double [][])lu, pivot);
+			else
+				LU.factor((@Approx double [][])lu, pivot);
 		}
 
+		if (verify && parallel)
+			verifyLU(A, lu, pivot);
+
 
 		// verify that LU is correct
 		@Approx double b[] = RandomVector(N, R);
@@ -160,11 +379,9 @@ public class kernel
 		// final double EPS = 1.0e-12;
 		
 		@Approx double[] y = matvec(A, x);
-		System.out.print("LU vector: ");
-		for (int i = 0; i < N; ++i) {
-		    System.out.print(Endorsements.endorse(y[i]) + " ");
-		}
-		System.out.println("");
+		ResultWriter writer = results();
+		writer.vector("LU vector", y);
+		writer.flush();
 		//if ( normabs(b, matvec(A,x)) / N > EPS )
 		//	return 0.0;
 
@@ -175,7 +392,54 @@ public class kernel
 	}
 
 
-  private static @Approx double[] NewVectorCopy(@Approx double x[])
+  /* The blocked factorization applies the same updates in the same
+     order as LU.factor(), so the factors must match exactly. */
+  private static void verifyLU(@Approx double A[][], @Approx double lu[][],
+		  int pivot[])
+  {
+		int N = A.length;
+		@Approx double seq[][] = LU.new_copy(A);
+		int seqPivot[] = new int[N];
+		LU.factor(seq, seqPivot);
+
+		int mismatches = 0;
+		for (int i=0; i<N; i++)
+		{
+			if (pivot[i] != seqPivot[i])
+				mismatches++;
+			for (int j=0; j<N; j++)
+				if (Endorsements.endorse(lu[i][j] != seq[i][j]))
+					mismatches++;
+		}
+		System.err.println("LU check: " + mismatches +
+				" entries differ from LU.factor" +
+				(mismatches == 0 ? "" : " FAILED"));
+  }
+
+  /* Fills in row[] (size N+1) and col[] (size (nz/N)*N) with the
+     compressed-row pattern described in measureSparseMatmult. */
+  static void SparsePattern(int N, int nz, int row[], int col[])
+  {
+		int nr = nz/N; 		// average number of nonzeros per row
+
+		row[0] = 0;	
+		for (int r=0; r<N; r++)
+		{
+			// initialize elements for row r
+
+			int rowr = row[r];
+			row[r+1] = rowr + nr;
+			int step = r/ nr;
+			if (step < 1) step = 1;   // take at least unit steps
+
+
+			for (int i=0; i<nr; i++)
+				col[rowr+i] = i*step;
+				
+		}
+  }
+
+  static @Approx double[] NewVectorCopy(@Approx double x[])
   {
 		int N = x.length;
 
@@ -207,7 +471,7 @@ public class kernel
 		return sum;
   }
 
-  private static void CopyMatrix(@Approx double B[][], @Approx double A[][])
+  static void CopyMatrix(@Approx double B[][], @Approx double A[][])
   {
         int M = A.length;
         int N = A[0].length;
@@ -230,7 +494,7 @@ public class kernel
 		}
   }
 
-  private static @Approx double[][] RandomMatrix(int M, int N, Random R)
+  static @Approx double[][] RandomMatrix(int M, int N, Random R)
   {
   		@Approx double A[][] = new @Approx double[M][N];
 
@@ -240,7 +504,40 @@ public class kernel
 		return A;
 	}
 
-	private static @Approx double[] RandomVector(int N, Random R)
+	/* The parallel kernels' matrices: row i from split(i) of the
+		kernel's own SplitRandom stream, filled on the pool. R is left
+		alone, so the inputs of later kernels that draw from it differ
+		from a sequential run's too. */
+	static final int SOR_STREAM = 1;
+	static final int LU_STREAM = 2;
+
+	static @Approx double[][] RandomMatrix(int M, int N, int stream,
+			ForkJoinPool pool)
+	{
+		@Approx double A[][] = new @Approx double[M][N];
+		new SplitRandom(Constants.RANDOM_SEED).split(stream).fillRows(A, pool);
+		return A;
+	}
+
+	/* Every row has its own stream, so filling them on one thread must
+		give exactly the same matrix. */
+	private static void verifyRandomMatrix(String name, @Approx double A[][],
+			int stream)
+	{
+		@Approx double seq[][] = new @Approx double[A.length][A[0].length];
+		new SplitRandom(Constants.RANDOM_SEED).split(stream).fillRows(seq, null);
+
+		int mismatches = 0;
+		for (int i=0; i<A.length; i++)
+			for (int j=0; j<A[i].length; j++)
+				if (Endorsements.endorse(A[i][j] != seq[i][j]))
+					mismatches++;
+		System.err.println(name + " input check: " + mismatches +
+				" entries differ from a sequential fill" +
+				(mismatches == 0 ? "" : " FAILED"));
+	}
+
+	static @Approx double[] RandomVector(int N, Random R)
 	{
 		@Approx double A[] = new @Approx double[N];
 
@@ -0,0 +1,283 @@
+/*
+ * Bounding-volume hierarchy over a Scene's primitives, built top down
+ * with the surface area heuristic: each node's primitives are binned by
+ * centroid along every axis and split where
+ *
+ *   TRAVERSAL + (area(L)*count(L) + area(R)*count(R)) / area(node)
+ *
+ * is least, unless keeping them in one leaf is cheaper. A ray then
+ * visits O(log n) nodes instead of testing all n primitives.
+ *
+ * Nodes live in flat arrays. Node n's box is box[6n..6n+5]; for a leaf,
+ * meta[2n] is the first of its meta[2n+1] entries of order[]; for an
+ * inner node, meta[2n] is its left child (the right one follows it) and
+ * meta[2n+1] is -1 - the split axis, so the near child can be visited
+ * first.
+ */
+public class BVH
+{
+  static final int BINS = 16;
+  static final int MAX_LEAF = 8;
+  static final float TRAVERSAL = 1;   // cost of a node visit, per primitive test
+  /* Beyond this depth nodes are halved by count, which adds at most 31
+     more levels, so a traversal stack of STACK entries always suffices. */
+  static final int MAX_DEPTH = 64;
+  static final int STACK = MAX_DEPTH + 32;
+
+  final Scene scene;
+  final int[] order;
+  float[] box;
+  int[] meta;
+  int nodeCount;
+  int depth;
+
+  /* build scratch */
+  private float[] primBox, centroid;
+  private final int[] binCount = new int[BINS];
+  private final float[] binBox = new float[6 * BINS];
+  private final float[] rightArea = new float[BINS];
+  private final float[] acc = new float[6];
+  private final float[] cmin = new float[3], cmax = new float[3];
+  private int bestBin;
+
+  BVH(Scene scene) {
+    this.scene = scene;
+    int n = scene.primitives();
+    order = new int[n];
+    int capacity = Math.max(1, 2 * n - 1);
+    box = new float[6 * capacity];
+    meta = new int[2 * capacity];
+    primBox = new float[6 * n];
+    centroid = new float[3 * n];
+    for (int p = 0; p < n; p++) {
+      order[p] = p;
+      scene.bounds(p, primBox);
+      for (int a = 0; a < 3; a++)
+        centroid[3*p+a] = 0.5f * (primBox[6*p+a] + primBox[6*p+3+a]);
+    }
+    nodeCount = 1;
+    build(0, 0, n, 0);
+    primBox = null;
+    centroid = null;
+  }
+
+  public int nodes() {
+    return nodeCount;
+  }
+
+  public int depth() {
+    return depth;
+  }
+
+  private void build(int node, int first, int count, int level) {
+    depth = Math.max(depth, level);
+    float[] b = box;
+    int o = 6 * node;
+    float[] cmin = this.cmin, cmax = this.cmax;
+    for (int a = 0; a < 3; a++) {
+      b[o+a] = cmin[a] = Float.POSITIVE_INFINITY;
+      b[o+3+a] = cmax[a] = Float.NEGATIVE_INFINITY;
+    }
+    for (int k = first; k < first + count; k++) {
+      int p = order[k];
+      for (int a = 0; a < 3; a++) {
+        b[o+a] = Math.min(b[o+a], primBox[6*p+a]);
+        b[o+3+a] = Math.max(b[o+3+a], primBox[6*p+3+a]);
+        cmin[a] = Math.min(cmin[a], centroid[3*p+a]);
+        cmax[a] = Math.max(cmax[a], centroid[3*p+a]);
+      }
+    }
+
+    if (count <= 2) {
+      leaf(node, first, count);
+      return;
+    }
+
+    int axis = -1, split = 0;
+    float best = Float.POSITIVE_INFINITY;
+    if (level < MAX_DEPTH) {
+      for (int a = 0; a < 3; a++) {
+        float extent = cmax[a] - cmin[a];
+        if (!(extent > 0))
+          continue;
+        float cost = binSplit(first, count, a, cmin[a], BINS / extent);
+        if (cost < best) {
+          best = cost;
+          axis = a;
+          split = bestBin;
+        }
+      }
+    }
+
+    int mid;
+    if (axis >= 0) {
+      float leafCost = count;
+      float area = area(b, o);
+      if (area > 0 && TRAVERSAL + best / area >= leafCost && count <= MAX_LEAF) {
+        leaf(node, first, count);
+        return;
+      }
+      float lo = cmin[axis];
+      float scale = BINS / (cmax[axis] - cmin[axis]);
+      int i = first, j = first + count - 1;
+      while (i <= j) {
+        if (bin(centroid[3*order[i]+axis], lo, scale) <= split)
+          i++;
+        else {
+          int t = order[i]; order[i] = order[j]; order[j] = t;
+          j--;
+        }
+      }
+      mid = i;
+    } else {
+      if (count <= MAX_LEAF && level < MAX_DEPTH) {
+        leaf(node, first, count);
+        return;
+      }
+      // all centroids coincide, or the tree is too deep: halve by count
+      axis = 0;
+      mid = first + count / 2;
+    }
+
+    int left = nodeCount;
+    nodeCount += 2;
+    meta[2*node] = left;
+    meta[2*node+1] = -1 - axis;
+    build(left, first, mid - first, level + 1);
+    build(left + 1, mid, first + count - mid, level + 1);
+  }
+
+  /* SAH cost, unnormalized, of the best split between bins along axis a;
+     the bin it splits after goes to bestBin. */
+  private float binSplit(int first, int count, int a, float lo, float scale) {
+    float[] bb = binBox;
+    for (int k = 0; k < BINS; k++) {
+      binCount[k] = 0;
+      for (int c = 0; c < 3; c++) {
+        bb[6*k+c] = Float.POSITIVE_INFINITY;
+        bb[6*k+3+c] = Float.NEGATIVE_INFINITY;
+      }
+    }
+    for (int k = first; k < first + count; k++) {
+      int p = order[k];
+      int bin = bin(centroid[3*p+a], lo, scale);
+      binCount[bin]++;
+      for (int c = 0; c < 3; c++) {
+        bb[6*bin+c] = Math.min(bb[6*bin+c], primBox[6*p+c]);
+        bb[6*bin+3+c] = Math.max(bb[6*bin+3+c], primBox[6*p+3+c]);
+      }
+    }
+
+    // sweep from the right, then from the left
+    float[] acc = this.acc;
+    reset(acc);
+    int n = 0;
+    for (int k = BINS - 1; k > 0; k--) {
+      n += binCount[k];
+      grow(acc, bb, 6 * k);
+      rightArea[k] = n == 0 ? 0 : n * area(acc, 0);
+    }
+    reset(acc);
+    n = 0;
+    float best = Float.POSITIVE_INFINITY;
+    for (int k = 0; k < BINS - 1; k++) {
+      n += binCount[k];
+      grow(acc, bb, 6 * k);
+      if (n == 0 || n == count)
+        continue;
+      float cost = n * area(acc, 0) + rightArea[k + 1];
+      if (cost < best) {
+        best = cost;
+        bestBin = k;
+      }
+    }
+    return best;
+  }
+
+  private static int bin(float c, float lo, float scale) {
+    return Math.min(BINS - 1, (int) ((c - lo) * scale));
+  }
+
+  private static void reset(float[] acc) {
+    for (int c = 0; c < 3; c++) {
+      acc[c] = Float.POSITIVE_INFINITY;
+      acc[3+c] = Float.NEGATIVE_INFINITY;
+    }
+  }
+
+  private static void grow(float[] acc, float[] b, int o) {
+    for (int c = 0; c < 3; c++) {
+      acc[c] = Math.min(acc[c], b[o+c]);
+      acc[3+c] = Math.max(acc[3+c], b[o+3+c]);
+    }
+  }
+
+  /* half the surface area, which is all the heuristic needs */
+  private static float area(float[] b, int o) {
+    float x = b[o+3] - b[o], y = b[o+4] - b[o+1], z = b[o+5] - b[o+2];
+    if (!(x >= 0))
+      return 0;
+    return x*y + y*z + z*x;
+  }
+
+  private void leaf(int node, int first, int count) {
+    meta[2*node] = first;
+    meta[2*node+1] = count;
+  }
+
+  /* Nearest hit closer than hit.t; with any, stops at the first. */
+  boolean intersect(float ox, float oy, float oz, float dx, float dy, float dz,
+                    Hit hit, boolean any) {
+    if (order.length == 0)
+      return false;
+    float ix = 1 / dx, iy = 1 / dy, iz = 1 / dz;
+    int[] stack = hit.stack;
+    int sp = 0;
+    stack[sp++] = 0;
+    boolean found = false;
+    float[] b = box;
+    while (sp > 0) {
+      int node = stack[--sp];
+      hit.nodes++;
+      int o = 6 * node;
+      // slab test against [T_MIN, hit.t]
+      float t0 = (b[o] - ox) * ix, t1 = (b[o+3] - ox) * ix;
+      float tmin = Math.min(t0, t1), tmax = Math.max(t0, t1);
+      t0 = (b[o+1] - oy) * iy;
+      t1 = (b[o+4] - oy) * iy;
+      tmin = Math.max(tmin, Math.min(t0, t1));
+      tmax = Math.min(tmax, Math.max(t0, t1));
+      t0 = (b[o+2] - oz) * iz;
+      t1 = (b[o+5] - oz) * iz;
+      tmin = Math.max(tmin, Math.min(t0, t1));
+      tmax = Math.min(tmax, Math.max(t0, t1));
+      if (tmax < tmin || tmax < Scene.T_MIN || tmin >= hit.t)
+        continue;
+
+      int count = meta[2*node+1];
+      if (count >= 0) {
+        int first = meta[2*node];
+        for (int k = first; k < first + count; k++) {
+          if (scene.intersect(order[k], ox, oy, oz, dx, dy, dz, hit)) {
+            found = true;
+            if (any)
+              return true;
+          }
+        }
+      } else {
+        int left = meta[2*node];
+        int axis = -1 - count;
+        float d = axis == 0 ? dx : axis == 1 ? dy : dz;
+        // the near child goes on top
+        if (d < 0) {
+          stack[sp++] = left;
+          stack[sp++] = left + 1;
+        } else {
+          stack[sp++] = left + 1;
+          stack[sp++] = left;
+        }
+      }
+    }
+    return found;
+  }
+}
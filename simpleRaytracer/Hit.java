@@ -0,0 +1,26 @@
+/*
+ * The nearest intersection found so far along a ray, and the traversal
+ * stack used to find it. Reset and reuse one per thread; Scene and BVH
+ * allocate nothing per ray.
+ */
+public final class Hit
+{
+  public float t;
+  public int primitive;           // -1 until something is hit
+
+  /* point and normal, once Scene.surface() has filled them in */
+  public float x, y, z, nx, ny, nz;
+
+  /* work done since the last reset, for benchmarks */
+  public int nodes, tests;
+
+  final int[] stack = new int[BVH.STACK];
+
+  /* Looks for hits nearer than tMax. */
+  public void reset(float tMax) {
+    t = tMax;
+    primitive = -1;
+    nodes = 0;
+    tests = 0;
+  }
+}
@@ -0,0 +1,116 @@
+import java.io.*;
+import java.nio.IntBuffer;
+
+/*
+ * Compares a rendered frame against a reference:
+ *
+ *   java ImageCompare [-size WxH] reference result [diff]
+ *
+ * Both images are read with RawImage.map, so raw files are compared
+ * straight from the mapping. -size gives the size of serialized (.ser)
+ * frames, which don't record it; it defaults to Plane's 400x256.
+ *
+ * Prints, per colour channel, the largest and mean absolute error and
+ * the PSNR, then the same over all three, and optionally writes the
+ * per-channel absolute differences as an image (PNG if the name ends in
+ * .png, raw otherwise). Alpha is ignored, as in Plane.checkErrors. Exits
+ * with 1 if the images differ.
+ */
+public class ImageCompare
+{
+  static final String[] CHANNELS = { "red", "green", "blue" };
+  static final int[] SHIFTS = { 16, 8, 0 };
+
+  public static void main(String[] args) throws IOException {
+    int width = RawImage.SERIALIZED_WIDTH, height = RawImage.SERIALIZED_HEIGHT;
+    if (args.length > 1 && args[0].equals("-size")) {
+      String[] wh = args[1].split("x");
+      width = Integer.parseInt(wh[0]);
+      height = Integer.parseInt(wh[1]);
+      String[] rest = new String[args.length - 2];
+      System.arraycopy(args, 2, rest, 0, rest.length);
+      args = rest;
+    }
+    if (args.length < 2 || args.length > 3) {
+      System.err.println("usage: ImageCompare [-size WxH] reference result [diff]");
+      System.exit(2);
+    }
+    RawImage reference = RawImage.map(args[0], width, height);
+    RawImage result = RawImage.map(args[1], width, height);
+    if (reference.width != result.width || reference.height != result.height) {
+      System.err.println("size differs: " + reference.width + "x" + reference.height +
+                         " vs " + result.width + "x" + result.height);
+      System.exit(1);
+    }
+
+    int n = reference.width * reference.height;
+    IntBuffer a = reference.pixels;
+    IntBuffer b = result.pixels;
+    int[] diff = args.length > 2 ? new int[n] : null;
+    int[] max = new int[3];
+    long[] sum = new long[3];
+    long[] squares = new long[3];
+    int differing = 0;
+    for (int i = 0; i < n; i++) {
+      int p = a.get(i);
+      int q = b.get(i);
+      if (((p ^ q) & 0xffffff) == 0)
+        continue;
+      differing++;
+      int d = 0;
+      for (int c = 0; c < 3; c++) {
+        int e = Math.abs(((p >> SHIFTS[c]) & 0xff) - ((q >> SHIFTS[c]) & 0xff));
+        if (e > max[c])
+          max[c] = e;
+        sum[c] += e;
+        squares[c] += e * e;
+        d |= e << SHIFTS[c];
+      }
+      if (diff != null)
+        diff[i] = d;
+    }
+
+    int allMax = 0;
+    long allSum = 0, allSquares = 0;
+    for (int c = 0; c < 3; c++) {
+      System.out.println(line(CHANNELS[c], max[c], sum[c], squares[c], n));
+      allMax = Math.max(allMax, max[c]);
+      allSum += sum[c];
+      allSquares += squares[c];
+    }
+    System.out.println(line("rgb", allMax, allSum, allSquares, 3L * n));
+    System.out.println("pixels: " + differing + " of " + n + " differ");
+
+    if (diff != null) {
+      for (int i = 0; i < n; i++)
+        diff[i] |= 255 << 24;
+      RawImage.save(args[2], IntBuffer.wrap(diff), reference.width, reference.height);
+    }
+    System.exit(differing == 0 ? 0 : 1);
+  }
+
+  /* PSNR in dB over the red, green and blue channels of two frames of
+     the same size; infinite if they are equal. */
+  public static double psnr(IntBuffer reference, IntBuffer result) {
+    int n = reference.limit();
+    long squares = 0;
+    for (int i = 0; i < n; i++) {
+      int p = reference.get(i), q = result.get(i);
+      for (int shift = 0; shift < 24; shift += 8) {
+        int e = ((p >> shift) & 0xff) - ((q >> shift) & 0xff);
+        squares += e * e;
+      }
+    }
+    return psnr((double) squares / (3L * n));
+  }
+
+  static double psnr(double mse) {
+    return 10 * Math.log10(255.0 * 255.0 / mse);
+  }
+
+  static String line(String name, int max, long sum, long squares, long samples) {
+    double mse = (double) squares / samples;
+    String psnr = mse == 0 ? "inf" : String.valueOf(psnr(mse));
+    return name + ": max " + max + ", mean " + ((double) sum / samples) + ", psnr " + psnr + " dB";
+  }
+}
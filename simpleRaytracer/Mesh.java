@@ -0,0 +1,54 @@
+/*
+ * An indexed triangle mesh: vertices holds x, y, z per vertex and indices
+ * three vertex numbers per triangle.
+ */
+public class Mesh
+{
+  public final float[] vertices;
+  public final int[] indices;
+
+  public Mesh(float[] vertices, int[] indices) {
+    if (indices.length % 3 != 0)
+      throw new IllegalArgumentException("indices must come in threes");
+    this.vertices = vertices;
+    this.indices = indices;
+  }
+
+  public int triangles() {
+    return indices.length / 3;
+  }
+
+  /* A rolling height field over [x0,x1] x [z0,z1] with about the given
+     number of triangles (two per grid cell), its heights between base
+     and base + height. */
+  public static Mesh terrain(int triangles, float x0, float z0, float x1, float z1,
+                             float base, float height) {
+    int cols = Math.max(1, (int) Math.ceil(Math.sqrt(triangles / 2.0)));
+    int rows = Math.max(1, (triangles + 2 * cols - 1) / (2 * cols));
+    float[] vertices = new float[3 * (cols + 1) * (rows + 1)];
+    int v = 0;
+    for (int j = 0; j <= rows; j++) {
+      float z = z0 + (z1 - z0) * j / rows;
+      for (int i = 0; i <= cols; i++) {
+        float x = x0 + (x1 - x0) * i / cols;
+        vertices[v++] = x;
+        vertices[v++] = base + height * 0.5f *
+          (1 + (float) (Math.sin(x * 0.35) * Math.cos(z * 0.27)));
+        vertices[v++] = z;
+      }
+    }
+    int[] indices = new int[6 * cols * rows];
+    int k = 0;
+    for (int j = 0; j < rows; j++) {
+      for (int i = 0; i < cols; i++) {
+        int a = j * (cols + 1) + i;
+        int b = a + 1;
+        int c = a + cols + 1;
+        int d = c + 1;
+        indices[k++] = a; indices[k++] = c; indices[k++] = b;
+        indices[k++] = b; indices[k++] = c; indices[k++] = d;
+      }
+    }
+    return new Mesh(vertices, indices);
+  }
+}
@@ -6,6 +6,8 @@ import enerj.lang.*;
 import java.awt.*;
 import java.awt.image.*;
 import java.io.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 
 public class Plane
@@ -16,93 +18,495 @@ public class Plane
 	Image buffer;
 	@Approx int pixels[];
 	int texture,light;
-	@Approx float lcoff;
-  float sng; // could maybe make approximate
   int numIterations =0;
 
+  /* Options after the four numeric arguments:
+       -size WxH    image size (default 400x256)
+       -tiled       render tiles on a fork/join pool (see renderTiled)
+       -threads N   pool size (default: available processors)
+       -tile S      tile edge in pixels (default TILE)
+       -forcegc     call System.gc() from texture() at the 25th pixel, as
+                    the benchmark used to unconditionally (sequential only)
+       -instrument  report time, allocation and GCs per phase on stderr
+       -out FILE    write the frame to FILE (raw ARGB, or PNG for *.png;
+                    see RawImage) instead of printing its channels
+       -scene N     also trace Scene.demo(N), about N triangles and a few
+                    spheres, which shadow the plane (implies -tiled)
+       -progressive render coarse to fine (see renderProgressive), on the
+                    pool if -tiled; with -out, the file is rewritten
+                    after every pass
+       -threshold T refine a block only where it differs from a neighbour
+                    by more than T in some channel (default 0)
+       -psnr DB -reference FILE
+                    stop once the frame is within DB of FILE
+       -budget MS   stop after the pass that ends past MS milliseconds */
+  static final int TILE = 32;
+  Dimension size = new Dimension(400, 256);
+  boolean tiled = false;
+  int threads = Runtime.getRuntime().availableProcessors();
+  int tile = TILE;
+  boolean forceGC = false;
+  boolean instrument = false;
+  String out = null;
+  int sceneTriangles = 0;
+  Scene scene;
+  boolean progressive = false;
+  int threshold = 0;
+  double targetPSNR = Double.POSITIVE_INFINITY;
+  String reference = null;
+  long budget = Long.MAX_VALUE;
+  static final float AMBIENT = 0.2f;
+
+  void parseOptions(String[] args) {
+    for (int i = 4; i < args.length; i++) {
+      if (args[i].equals("-size")) {
+        String[] wh = args[++i].split("x");
+        size = new Dimension(Integer.parseInt(wh[0]), Integer.parseInt(wh[1]));
+      } else if (args[i].equals("-tiled")) {
+        tiled = true;
+      } else if (args[i].equals("-threads")) {
+        threads = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-tile")) {
+        tile = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-forcegc")) {
+        forceGC = true;
+      } else if (args[i].equals("-instrument")) {
+        instrument = true;
+      } else if (args[i].equals("-out")) {
+        out = args[++i];
+      } else if (args[i].equals("-scene")) {
+        sceneTriangles = Integer.parseInt(args[++i]);
+        tiled = true;
+      } else if (args[i].equals("-progressive")) {
+        progressive = true;
+      } else if (args[i].equals("-threshold")) {
+        threshold = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-psnr")) {
+        targetPSNR = Double.parseDouble(args[++i]);
+      } else if (args[i].equals("-reference")) {
+        reference = args[++i];
+      } else if (args[i].equals("-budget")) {
+        budget = Long.parseLong(args[++i]);
+      } else {
+        throw new IllegalArgumentException("unknown option " + args[i]);
+      }
+    }
+    if (targetPSNR != Double.POSITIVE_INFINITY && reference == null)
+      throw new IllegalArgumentException("-psnr needs -reference");
+  }
+
 	public void init(String[] args)
 	{
-     Dimension dd=new Dimension(400, 256);
+     parseOptions(args);
+     RenderStats stats = new RenderStats(instrument);
+     Dimension dd=size;
      w=dd.width;
      h=dd.height;
      texture=Integer.parseInt(args[0]);//getParameter("texture"));
      light=Integer.parseInt(args[1]);//getParameter("light"));
      pixels=new @Approx int[w*h];
-     int index,x,y; //not approx --> for loops and array indexing.
-     @Approx float xe,ye,ze,xd,yd,zd;
-     @Approx float ix,iy,iz;
-     @Approx float nx,ny,nz;
-     @Approx float lx,ly,lz;
+     int x,y; //not approx --> for loops and array indexing.
+     @Approx float ye;
      float lly; 
      lly=Integer.parseInt(args[2]);//getParameter("lighty"));
      ye=Integer.parseInt(args[3]); //getParameter("viewy"));
-     
-     nx=0;
-     ny=1;
-     nz=0;
-     int bl=(255<<24); // this stands for black, a constant, maybe?
-     @Approx float t; //who knows
-     @Approx float l; //who knows
-     float w1,h1; //positioning in image? so don't make approx?
-     w1=w/2;
-     h1=h/2;
-     
-     xe=0;
-     
-     ze=0;
      k=-1;
      
+     if (sceneTriangles > 0) {
+       scene = Scene.demo(sceneTriangles);
+       scene.build();
+     }
+     ForkJoinPool pool = tiled ? new ForkJoinPool(threads) : null;
+     stats.phase("setup");
+
+     if (progressive) {
+       renderProgressive(lly, ye, pool);
+     } else if (tiled) {
+       renderTiled(lly, ye, pool);
+     } else
      for(y=0;y<h;y++)
      {
      	 for(x=0;x<w;x++)
      	 {
-     		  t=-1;
-     		  xd=(x-w1)/w1;
-     		  yd=(h1-y)/h1;
-     		  zd=-1;
-     		  l=xd*xd+yd*yd+zd*zd;
-     		  xd/=l;
-     		  yd/=l;
-     		  zd/=l;
-     		
-     		  if(Endorsements.endorse((k-ye)*yd)<=0) {
-     		    t=-1;
-     		  } else {
-     		    t=(k-ye)/yd;
-          }
-     		 
-     		  index=y*w+x;
-     		  if(Endorsements.endorse(t)>=0)
-     		  {
-            ix=xe+t*xd;
-            iy=ye+t*yd;
-            iz=ze+t*zd;		  	
-            lx=0;
-            ly=lly;
-            lz=0;
-            lx=lx-ix;
-            ly=ly-iy;
-            lz=lz-iz;
-            sng=(float)Math.sqrt(Endorsements.endorse(lx*lx+ly*ly+lz*lz));
-            // sng=1.7f/sng;
-            sng=1.0f/sng;
-            lcoff=(lx*nx+ly*ny+lz*nz)*sng;
-            pixels[index]=texture(ix,iy,iz);
-     		  } else {
-     		    pixels[index]=bl;
-          }
+          pixels[y*w+x]=shade(x,y,lly,ye);
           numIterations++;
      	 }
      }
+     stats.phase("render");
+     if (pool != null)
+       pool.shutdown();
+
+     if (out != null) {
+       if (!progressive)        // which has written it after every pass
+         saveFrame();
+     } else
      for (int i = 0; i < pixels.length; i++) {
         System.out.println(Endorsements.endorse(pixels[i] & 0xff)+"\n");
         System.out.println(Endorsements.endorse((pixels[i] >> 8) & 0xff)+"\n");
         System.out.println(Endorsements.endorse((pixels[i] >> 16) & 0xff)+"\n");
       }
     //checkErrors(pixels);
+     stats.phase("output");
+     stats.report();
 	}
 
-  public @Approx int texture(@Approx float x,@Approx float y, @Approx float z) {
+  /* The pixel at (x, y). Everything it needs is held in locals, so
+     pixels can be shaded in any order and on any thread. */
+  @Approx int shade(int x, int y, float lly, @Approx float ye) {
+    return shade(x, y, lly, ye, null);
+  }
+
+  /* With a scene, hit is the scratch used to trace it. */
+  @Approx int shade(int x, int y, float lly, @Approx float ye, Hit hit) {
+    @Approx float xe,ze,xd,yd,zd;
+    @Approx float ix,iy,iz;
+    @Approx float nx,ny,nz;
+    @Approx float lx,ly,lz;
+    @Approx float t,l,lcoff;
+    float sng;
+    float w1=w/2;
+    float h1=h/2;
+    nx=0;
+    ny=1;
+    nz=0;
+    xe=0;
+    ze=0;
+
+    xd=(x-w1)/w1;
+    yd=(h1-y)/h1;
+    zd=-1;
+    l=xd*xd+yd*yd+zd*zd;
+    xd/=l;
+    yd/=l;
+    zd/=l;
+
+    if(Endorsements.endorse((k-ye)*yd)<=0) {
+      t=-1;
+    } else {
+      t=(k-ye)/yd;
+    }
+
+    if (scene != null) {
+      float oy = Endorsements.endorse(ye);
+      float dx = Endorsements.endorse(xd), dy = Endorsements.endorse(yd), dz = Endorsements.endorse(zd);
+      hit.reset(Endorsements.endorse(t) >= 0 ? Endorsements.endorse(t) : Float.POSITIVE_INFINITY);
+      if (scene.intersect(0, oy, 0, dx, dy, dz, hit))
+        return shadeScene(hit, lly, oy, dx, dy, dz);
+    }
+
+    if(Endorsements.endorse(t)>=0) {
+      ix=xe+t*xd;
+      iy=ye+t*yd;
+      iz=ze+t*zd;
+      lx=0;
+      ly=lly;
+      lz=0;
+      lx=lx-ix;
+      ly=ly-iy;
+      lz=lz-iz;
+      sng=(float)Math.sqrt(Endorsements.endorse(lx*lx+ly*ly+lz*lz));
+      sng=1.0f/sng;
+      lcoff=(lx*nx+ly*ny+lz*nz)*sng;
+      if (scene != null && scene.occluded(Endorsements.endorse(ix), Endorsements.endorse(iy),
+                                          Endorsements.endorse(iz), Endorsements.endorse(lx),
+                                          Endorsements.endorse(ly), Endorsements.endorse(lz),
+                                          1, hit))
+        lcoff=lcoff*AMBIENT;
+      return texture(ix,iy,iz,lcoff);
+    } else {
+      return (255<<24);
+    }
+  }
+
+  /* Lambert shading, with shadows, of the scene primitive in hit for a
+     ray from the eye at (0, oy, 0). The light is at (0, lly, 0), as for
+     the plane. */
+  int shadeScene(Hit hit, float lly, float oy, float dx, float dy, float dz) {
+    int color = scene.color(hit.primitive);
+    scene.surface(hit, 0, oy, 0, dx, dy, dz);
+    float f = 1;
+    if (light != 0) {
+      float lx = -hit.x, ly = lly - hit.y, lz = -hit.z;
+      float cos = (hit.nx*lx + hit.ny*ly + hit.nz*lz) /
+        (float) Math.sqrt(lx*lx + ly*ly + lz*lz);
+      if (cos < 0 || scene.occluded(hit.x, hit.y, hit.z, lx, ly, lz, 1, hit))
+        cos = 0;
+      f = AMBIENT + (1 - AMBIENT) * cos;
+    }
+    int r = (int) (((color >> 16) & 0xff) * f);
+    int g = (int) (((color >> 8) & 0xff) * f);
+    int b = (int) ((color & 0xff) * f);
+    return (255<<24)|(r<<16)|(g<<8)|b;
+  }
+
+  /* Renders the image in tile x tile blocks on a fork/join pool. Each
+     pixel comes from shade(), so the image is bit-identical to the one
+     the sequential loop produces. */
+  void renderTiled(float lly, @Approx float ye, ForkJoinPool pool) {
+    int tilesX = (w + tile - 1) / tile;
+    int tilesY = (h + tile - 1) / tile;
+    pool.invoke(new Tiles(this, lly, ye, tilesX, 0, tilesX * tilesY));
+  }
+
+  void saveFrame() {
+    try {
+      RawImage.save(out, pixels, w, h);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /* Renders in passes, coarse to fine. The first pass shades every
+     COARSE-th pixel of every COARSE-th row and fills the COARSE x COARSE
+     block below and right of each with it. Each later pass halves the
+     blocks, but only those whose sample differs by more than threshold
+     from one of the eight around it: they get the three new samples at
+     their half points, and the rest keep their colour. So flat areas
+     are done early and edges and texture are refined down to single
+     pixels.
+
+     After each pass a line goes to stderr, the frame to -out if given,
+     and rendering stops early once the frame is within -psnr of the
+     -reference image or -budget has run out. */
+  void renderProgressive(float lly, @Approx float ye, ForkJoinPool pool) {
+    long start = System.nanoTime();
+    RawImage ref = null;
+    if (reference != null) {
+      try {
+        ref = RawImage.map(reference, w, h);
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+      if (ref.width != w || ref.height != h)
+        throw new IllegalArgumentException("reference is " + ref.width + "x" + ref.height);
+    }
+
+    // the blocks still being refined, x and y interleaved
+    int size = COARSE;
+    int[] blocks = new int[2 * ((w + size - 1) / size) * ((h + size - 1) / size)];
+    int count = 0;
+    for (int y = 0; y < h; y += size)
+      for (int x = 0; x < w; x += size) {
+        blocks[count++] = x;
+        blocks[count++] = y;
+      }
+    count /= 2;
+    shaded = 0;
+
+    render(lly, ye, pool, blocks, null, size, count);
+    for (int pass = 0; !passDone(pass, size, start, ref) && size > 1 && count > 0; pass++) {
+      boolean[] refine = new boolean[count];
+      render(lly, ye, pool, blocks, refine, size, count);
+
+      // the refined blocks' quarters are the next pass's blocks
+      int half = size / 2;
+      int next = 0;
+      for (int b = 0; b < count; b++)
+        if (refine[b])
+          next += 4;
+      int[] nextBlocks = new int[2 * next];
+      next = 0;
+      for (int b = 0; b < count; b++) {
+        if (!refine[b])
+          continue;
+        int x = blocks[2*b], y = blocks[2*b+1];
+        for (int dy = 0; dy < size; dy += half)
+          for (int dx = 0; dx < size; dx += half)
+            if (x + dx < w && y + dy < h) {
+              nextBlocks[next++] = x + dx;
+              nextBlocks[next++] = y + dy;
+            }
+      }
+      blocks = nextBlocks;
+      count = next / 2;
+      size = half;
+    }
+  }
+
+  private void render(float lly, @Approx float ye, ForkJoinPool pool,
+                      int[] blocks, boolean[] refine, int size, int count) {
+    if (pool != null)
+      pool.invoke(new Blocks(this, lly, ye, blocks, refine, size, 0, count));
+    else
+      refineBlocks(lly, ye, blocks, refine, size, 0, count, new Hit());
+  }
+
+  /* Reports a pass that has left the frame at size x size resolution
+     and says whether to stop. */
+  private boolean passDone(int pass, int size, long start, RawImage ref) {
+    double ms = (System.nanoTime() - start) / 1e6;
+    double psnr = ref != null ? ImageCompare.psnr(ref.pixels, frame()) : Double.NaN;
+    System.err.println("pass " + pass + ": " + size + "x" + size + " blocks, " +
+                       shaded + " pixels shaded, " + ms + " ms" +
+                       (ref != null ? ", psnr " + psnr + " dB" : ""));
+    if (out != null)
+      saveFrame();
+    return psnr >= targetPSNR || ms >= budget;
+  }
+
+  static final int COARSE = 16;
+  int shaded;               // pixels shaded so far by renderProgressive
+
+  /* One progressive pass over blocks lo..hi-1 of the given size. With no
+     refine array it is the first pass, giving each block its top left
+     sample. Otherwise each block, filled with that sample, is split if
+     its neighbours differ: the three new samples fill the other
+     quarters. Only the blocks' own pixels are written. The neighbours
+     read are the top left samples of other blocks of this size, which
+     no block writes during the pass, so the blocks are independent. */
+  void refineBlocks(float lly, @Approx float ye, int[] blocks, boolean[] refine,
+                    int size, int lo, int hi, Hit hit) {
+    int n = 0;
+    for (int b = lo; b < hi; b++) {
+      int x = blocks[2*b], y = blocks[2*b+1];
+      if (refine == null) {
+        sample(x, y, size, lly, ye, hit);
+        n++;
+        continue;
+      }
+      if (!differsAround(x, y, size))
+        continue;
+      refine[b] = true;
+      int half = size / 2;
+      if (x + half < w) {
+        sample(x + half, y, half, lly, ye, hit);
+        n++;
+      }
+      if (y + half < h) {
+        sample(x, y + half, half, lly, ye, hit);
+        n++;
+        if (x + half < w) {
+          sample(x + half, y + half, half, lly, ye, hit);
+          n++;
+        }
+      }
+    }
+    synchronized (this) {
+      shaded += n;
+    }
+  }
+
+  /* Whether the sample at (x, y) differs from any of the eight around
+     it, size pixels away. Those off the image are skipped rather than
+     clamped to the edge, since a clamped one could be a pixel that a
+     neighbouring block is rewriting in this pass. */
+  private boolean differsAround(int x, int y, int size) {
+    @Approx int c = pixels[y*w+x];
+    for (int dy = -size; dy <= size; dy += size) {
+      int yy = y + dy;
+      if (yy < 0 || yy >= h)
+        continue;
+      for (int dx = -size; dx <= size; dx += size) {
+        int xx = x + dx;
+        if (xx < 0 || xx >= w)
+          continue;
+        if (differs(c, pixels[yy*w+xx]))
+          return true;
+      }
+    }
+    return false;
+  }
+
+  private boolean differs(@Approx int a, @Approx int b) {
+    int p = Endorsements.endorse(a), q = Endorsements.endorse(b);
+    for (int shift = 0; shift < 24; shift += 8)
+      if (Math.abs(((p >> shift) & 0xff) - ((q >> shift) & 0xff)) > threshold)
+        return true;
+    return false;
+  }
+
+  private void sample(int x, int y, int size, float lly, @Approx float ye, Hit hit) {
+    fill(x, y, size, shade(x, y, lly, ye, scene != null ? hit : null));
+  }
+
+  private void fill(int x, int y, int size, @Approx int c) {
+    int x1 = Math.min(x + size, w), y1 = Math.min(y + size, h);
+    for (int yy = y; yy < y1; yy++)
+      for (int xx = x; xx < x1; xx++)
+        pixels[yy*w+xx] = c;
+  }
+
+  private java.nio.IntBuffer frame() {
+    int[] argb = new int[w * h];
+    for (int i = 0; i < argb.length; i++)
+      argb[i] = Endorsements.endorse(pixels[i]);
+    return java.nio.IntBuffer.wrap(argb);
+  }
+
+  static final class Blocks extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    static final int GRAIN = 64;
+
+    private final Plane plane;
+    private final float lly;
+    private final @Approx float ye;
+    private final int[] blocks;
+    private final boolean[] refine;
+    private final int size, lo, hi;
+
+    Blocks(Plane plane, float lly, @Approx float ye, int[] blocks, boolean[] refine,
+           int size, int lo, int hi) {
+      this.plane = plane;
+      this.lly = lly;
+      this.ye = ye;
+      this.blocks = blocks;
+      this.refine = refine;
+      this.size = size;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    protected void compute() {
+      if (hi - lo > GRAIN) {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new Blocks(plane, lly, ye, blocks, refine, size, lo, mid),
+                  new Blocks(plane, lly, ye, blocks, refine, size, mid, hi));
+        return;
+      }
+      plane.refineBlocks(lly, ye, blocks, refine, size, lo, hi, new Hit());
+    }
+  }
+
+  static final class Tiles extends RecursiveAction {
+    private static final long serialVersionUID = 1L;
+
+    private final Plane plane;
+    private final float lly;
+    private final @Approx float ye;
+    private final int tilesX, lo, hi;
+
+    Tiles(Plane plane, float lly, @Approx float ye, int tilesX, int lo, int hi) {
+      this.plane = plane;
+      this.lly = lly;
+      this.ye = ye;
+      this.tilesX = tilesX;
+      this.lo = lo;
+      this.hi = hi;
+    }
+
+    protected void compute() {
+      if (hi - lo > 1) {
+        int mid = (lo + hi) >>> 1;
+        invokeAll(new Tiles(plane, lly, ye, tilesX, lo, mid),
+                  new Tiles(plane, lly, ye, tilesX, mid, hi));
+        return;
+      }
+      int tile = plane.tile;
+      int x0 = (lo % tilesX) * tile;
+      int y0 = (lo / tilesX) * tile;
+      int x1 = Math.min(x0 + tile, plane.w);
+      int y1 = Math.min(y0 + tile, plane.h);
+      Hit hit = plane.scene != null ? new Hit() : null;
+      for (int y = y0; y < y1; y++)
+        for (int x = x0; x < x1; x++)
+          plane.pixels[y*plane.w+x] = plane.shade(x, y, lly, ye, hit);
+    }
+  }
+
+  /* The colour at (x, y, z) on the plane, lit by lcoff, the cosine of
+     the angle to the light. */
+  public @Approx int texture(@Approx float x,@Approx float y, @Approx float z, @Approx float lcoff) {
  	  int v;
  	  @Approx int col;
  	  @Approx int r,g,b;
@@ -125,7 +529,8 @@ public class Plane
       }
  	  }
  	   
-    if(numIterations == 25) {
+    // numIterations only counts in init()'s sequential loop
+    if(forceGC && numIterations == 25) {
       System.gc(); 
     }
  	  return col;
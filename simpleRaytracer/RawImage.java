@@ -0,0 +1,144 @@
+import enerj.lang.*;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import javax.imageio.ImageIO;
+
+/*
+ * A rendered frame as a flat file of ARGB ints, written and read through
+ * a memory mapping instead of object streams or console lines. Layout,
+ * big-endian:
+ *
+ *   int 'ARGB', int width, int height, width*height ARGB pixels (row major)
+ *
+ * save() writes a PNG instead when the name ends in .png, and map()
+ * reads one back. map() also takes the old result.ser/reference.ser
+ * files (a serialized int[] of the frame, which doesn't record its size,
+ * so the caller gives it; Plane's default 400x256 unless told
+ * otherwise). PNGs and serialized frames are copied onto the heap.
+ */
+public class RawImage
+{
+  public static final int MAGIC = ('A' << 24) | ('R' << 16) | ('G' << 8) | 'B';
+  static final int HEADER = 3;            // ints before the pixels
+  static final int SERIALIZED_WIDTH = 400, SERIALIZED_HEIGHT = 256;
+
+  public final int width, height;
+  public final IntBuffer pixels;
+
+  RawImage(int width, int height, IntBuffer pixels) {
+    this.width = width;
+    this.height = height;
+    this.pixels = pixels;
+  }
+
+  /* Plane's approximate frame; the pixels are endorsed on the way out. */
+  public static void save(String filename, @Approx int[] pixels, int width, int height)
+      throws IOException {
+    int n = width * height;
+    int[] argb = new int[n];
+    for (int i = 0; i < n; i++)
+      argb[i] = Endorsements.endorse(pixels[i]);
+    save(filename, IntBuffer.wrap(argb), width, height);
+  }
+
+  public static void save(String filename, IntBuffer pixels, int width, int height)
+      throws IOException {
+    if (filename.toLowerCase().endsWith(".png"))
+      writePNG(filename, pixels, width, height);
+    else
+      write(filename, pixels, width, height);
+  }
+
+  public static void write(String filename, IntBuffer pixels, int width, int height)
+      throws IOException {
+    int n = width * height;
+    RandomAccessFile file = new RandomAccessFile(filename, "rw");
+    try {
+      file.setLength(0);
+      MappedByteBuffer buf = file.getChannel()
+        .map(FileChannel.MapMode.READ_WRITE, 0, 4L * (HEADER + n));
+      IntBuffer out = buf.asIntBuffer();
+      out.put(MAGIC).put(width).put(height);
+      IntBuffer in = pixels.duplicate();
+      in.position(0).limit(n);
+      out.put(in);
+    } finally {
+      file.close();
+    }
+  }
+
+  public static void writePNG(String filename, IntBuffer pixels, int width, int height)
+      throws IOException {
+    int n = width * height;
+    int[] rgb = new int[n];
+    IntBuffer in = pixels.duplicate();
+    in.position(0);
+    in.get(rgb);
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    image.setRGB(0, 0, width, height, rgb, 0, width);
+    if (!ImageIO.write(image, "PNG", new File(filename)))
+      throw new IOException("no PNG writer");
+  }
+
+  public static RawImage map(String filename) throws IOException {
+    return map(filename, SERIALIZED_WIDTH, SERIALIZED_HEIGHT);
+  }
+
+  /* A serialized frame is taken to be width x height. */
+  public static RawImage map(String filename, int width, int height) throws IOException {
+    if (filename.toLowerCase().endsWith(".png"))
+      return readPNG(filename);
+    RandomAccessFile file = new RandomAccessFile(filename, "r");
+    try {
+      FileChannel channel = file.getChannel();
+      long size = channel.size();
+      if (size >= 4 * HEADER) {
+        IntBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, size).asIntBuffer();
+        if (in.get(0) == MAGIC) {
+          int rawWidth = in.get(1);
+          int rawHeight = in.get(2);
+          if ((long) rawWidth * rawHeight > in.limit() - HEADER)
+            throw new IOException(filename + ": truncated image");
+          in.position(HEADER);
+          in.limit(HEADER + rawWidth * rawHeight);
+          return new RawImage(rawWidth, rawHeight, in.slice());
+        }
+      }
+    } finally {
+      file.close();
+    }
+    return readSerialized(filename, width, height);
+  }
+
+  static RawImage readPNG(String filename) throws IOException {
+    BufferedImage image = ImageIO.read(new File(filename));
+    if (image == null)
+      throw new IOException(filename + ": not a PNG image");
+    int width = image.getWidth(), height = image.getHeight();
+    int[] argb = image.getRGB(0, 0, width, height, null, 0, width);
+    return new RawImage(width, height, IntBuffer.wrap(argb));
+  }
+
+  static RawImage readSerialized(String filename, int width, int height) throws IOException {
+    int[] pixels;
+    ObjectInputStream in = new ObjectInputStream(
+      new BufferedInputStream(new FileInputStream(filename)));
+    try {
+      pixels = (int[]) in.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException(filename + ": not an image", e);
+    } catch (ClassCastException e) {
+      throw new IOException(filename + ": not an image", e);
+    } finally {
+      in.close();
+    }
+    if (pixels.length != width * height)
+      throw new IOException(filename + ": serialized frame has " + pixels.length +
+                            " pixels, not " + width + "x" + height);
+    return new RawImage(width, height, IntBuffer.wrap(pixels));
+  }
+}
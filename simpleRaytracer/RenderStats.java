@@ -0,0 +1,90 @@
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/*
+ * Per-phase wall time, allocation and GC activity for Plane's -instrument
+ * mode. Call phase(name) at the end of each phase; report() prints one
+ * line per phase on stderr so the image on stdout is untouched. A
+ * disabled instance does nothing.
+ *
+ * Allocation is summed over the live threads, so a phase that uses a
+ * pool has to end before the pool's threads exit. It reads -1 on JVMs
+ * without com.sun.management.ThreadMXBean.
+ */
+public class RenderStats
+{
+  private ThreadMXBean threads;
+  private List<GarbageCollectorMXBean> gcs;
+  private final StringBuilder lines = new StringBuilder();
+  private final boolean enabled;
+
+  private long time, allocated, gcCount, gcTime;
+
+  public RenderStats(boolean enabled) {
+    this.enabled = enabled;
+    if (!enabled)
+      return;
+    threads = ManagementFactory.getThreadMXBean();
+    gcs = ManagementFactory.getGarbageCollectorMXBeans();
+    if (threads instanceof com.sun.management.ThreadMXBean)
+      ((com.sun.management.ThreadMXBean) threads).setThreadAllocatedMemoryEnabled(true);
+    time = System.nanoTime();
+    allocated = allocatedBytes();
+    gcCount = gcCount();
+    gcTime = gcTime();
+  }
+
+  /* Ends the current phase, naming it, and starts the next. */
+  public void phase(String name) {
+    if (!enabled)
+      return;
+    long nowTime = System.nanoTime();
+    long nowAllocated = allocatedBytes();
+    long nowGcCount = gcCount();
+    long nowGcTime = gcTime();
+
+    lines.append("phase ").append(name).append(": ")
+      .append((nowTime - time) / 1000000.0).append(" ms, ")
+      .append(allocated < 0 ? -1 : nowAllocated - allocated).append(" bytes allocated, ")
+      .append(nowGcCount - gcCount).append(" GCs (")
+      .append(nowGcTime - gcTime).append(" ms)\n");
+
+    // the bookkeeping above is not charged to the next phase
+    time = System.nanoTime();
+    allocated = allocatedBytes();
+    gcCount = nowGcCount;
+    gcTime = nowGcTime;
+  }
+
+  public void report() {
+    System.err.print(lines);
+  }
+
+  private long allocatedBytes() {
+    if (!(threads instanceof com.sun.management.ThreadMXBean))
+      return -1;
+    long[] sizes = ((com.sun.management.ThreadMXBean) threads)
+      .getThreadAllocatedBytes(threads.getAllThreadIds());
+    long total = 0;
+    for (int i = 0; i < sizes.length; i++)
+      if (sizes[i] > 0)
+        total += sizes[i];
+    return total;
+  }
+
+  private long gcCount() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : gcs)
+      total += Math.max(0, gc.getCollectionCount());
+    return total;
+  }
+
+  private long gcTime() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc : gcs)
+      total += Math.max(0, gc.getCollectionTime());
+    return total;
+  }
+}
@@ -0,0 +1,230 @@
+/*
+ * Spheres and triangles (meshes are added triangle by triangle),
+ * intersected through a BVH.
+ *
+ * Primitive p is triangle p if p < triangleCount, sphere
+ * p - triangleCount otherwise. Triangles are kept as a corner and two
+ * edges, 9 floats each; spheres as centre and radius. Rays are
+ * o + t*d for t > T_MIN; d need not be normalized. Call build() after
+ * the last add and before intersecting.
+ */
+public class Scene
+{
+  public static final float T_MIN = 1e-4f;
+
+  float[] triangles = new float[9 * 64];   // v0, v1-v0, v2-v0
+  int[] triangleColors = new int[64];
+  int triangleCount;
+
+  float[] spheres = new float[4 * 8];      // cx, cy, cz, r
+  int[] sphereColors = new int[8];
+  int sphereCount;
+
+  BVH bvh;
+
+  public void addTriangle(float ax, float ay, float az, float bx, float by, float bz,
+                          float cx, float cy, float cz, int color) {
+    if (9 * (triangleCount + 1) > triangles.length) {
+      triangles = grow(triangles);
+      triangleColors = grow(triangleColors);
+    }
+    float[] f = triangles;
+    int i = 9 * triangleCount;
+    f[i] = ax;
+    f[i+1] = ay;
+    f[i+2] = az;
+    f[i+3] = bx - ax;
+    f[i+4] = by - ay;
+    f[i+5] = bz - az;
+    f[i+6] = cx - ax;
+    f[i+7] = cy - ay;
+    f[i+8] = cz - az;
+    triangleColors[triangleCount++] = color;
+    bvh = null;
+  }
+
+  public void addMesh(Mesh mesh, int color) {
+    float[] v = mesh.vertices;
+    int[] idx = mesh.indices;
+    for (int k = 0; k < idx.length; k += 3) {
+      int a = 3 * idx[k], b = 3 * idx[k+1], c = 3 * idx[k+2];
+      addTriangle(v[a], v[a+1], v[a+2], v[b], v[b+1], v[b+2], v[c], v[c+1], v[c+2], color);
+    }
+  }
+
+  public void addSphere(float cx, float cy, float cz, float r, int color) {
+    if (4 * (sphereCount + 1) > spheres.length) {
+      spheres = grow(spheres);
+      sphereColors = grow(sphereColors);
+    }
+    int i = 4 * sphereCount;
+    spheres[i] = cx;
+    spheres[i+1] = cy;
+    spheres[i+2] = cz;
+    spheres[i+3] = r;
+    sphereColors[sphereCount++] = color;
+    bvh = null;
+  }
+
+  public int primitives() {
+    return triangleCount + sphereCount;
+  }
+
+  public int triangles() {
+    return triangleCount;
+  }
+
+  public void build() {
+    bvh = new BVH(this);
+  }
+
+  public BVH bvh() {
+    return bvh;
+  }
+
+  /* Nearest primitive along the ray closer than hit.t; false if none. */
+  public boolean intersect(float ox, float oy, float oz, float dx, float dy, float dz, Hit hit) {
+    return bvh.intersect(ox, oy, oz, dx, dy, dz, hit, false);
+  }
+
+  /* Whether anything lies along the ray closer than tMax. */
+  public boolean occluded(float ox, float oy, float oz, float dx, float dy, float dz,
+                          float tMax, Hit hit) {
+    hit.reset(tMax);
+    return bvh.intersect(ox, oy, oz, dx, dy, dz, hit, true);
+  }
+
+  /* intersect() by testing every primitive, for checking the BVH */
+  public boolean intersectAll(float ox, float oy, float oz, float dx, float dy, float dz, Hit hit) {
+    boolean found = false;
+    for (int p = 0; p < primitives(); p++)
+      found |= intersect(p, ox, oy, oz, dx, dy, dz, hit);
+    return found;
+  }
+
+  /* Records primitive p in hit if the ray meets it before hit.t. */
+  final boolean intersect(int p, float ox, float oy, float oz, float dx, float dy, float dz,
+                          Hit hit) {
+    hit.tests++;
+    float t;
+    if (p < triangleCount) {
+      // Moller-Trumbore
+      float[] f = triangles;
+      int i = 9 * p;
+      float e1x = f[i+3], e1y = f[i+4], e1z = f[i+5];
+      float e2x = f[i+6], e2y = f[i+7], e2z = f[i+8];
+      float px = dy*e2z - dz*e2y, py = dz*e2x - dx*e2z, pz = dx*e2y - dy*e2x;
+      float det = e1x*px + e1y*py + e1z*pz;
+      if (det == 0)
+        return false;
+      float inv = 1 / det;
+      float sx = ox - f[i], sy = oy - f[i+1], sz = oz - f[i+2];
+      float u = (sx*px + sy*py + sz*pz) * inv;
+      if (u < 0 || u > 1)
+        return false;
+      float qx = sy*e1z - sz*e1y, qy = sz*e1x - sx*e1z, qz = sx*e1y - sy*e1x;
+      float v = (dx*qx + dy*qy + dz*qz) * inv;
+      if (v < 0 || u + v > 1)
+        return false;
+      t = (e2x*qx + e2y*qy + e2z*qz) * inv;
+    } else {
+      float[] s = spheres;
+      int i = 4 * (p - triangleCount);
+      float cx = ox - s[i], cy = oy - s[i+1], cz = oz - s[i+2];
+      float a = dx*dx + dy*dy + dz*dz;
+      float b = cx*dx + cy*dy + cz*dz;
+      float c = cx*cx + cy*cy + cz*cz - s[i+3]*s[i+3];
+      float disc = b*b - a*c;
+      if (disc < 0)
+        return false;
+      float root = (float) Math.sqrt(disc);
+      t = (-b - root) / a;
+      if (t <= T_MIN)
+        t = (-b + root) / a;
+    }
+    if (t <= T_MIN || t >= hit.t)
+      return false;
+    hit.t = t;
+    hit.primitive = p;
+    return true;
+  }
+
+  public int color(int p) {
+    return p < triangleCount ? triangleColors[p] : sphereColors[p - triangleCount];
+  }
+
+  /* Fills in hit's point and unit normal, the normal turned to face
+     against the ray that found it. */
+  public void surface(Hit hit, float ox, float oy, float oz, float dx, float dy, float dz) {
+    int p = hit.primitive;
+    float x = ox + hit.t * dx, y = oy + hit.t * dy, z = oz + hit.t * dz;
+    float nx, ny, nz;
+    if (p < triangleCount) {
+      float[] f = triangles;
+      int i = 9 * p;
+      nx = f[i+4]*f[i+8] - f[i+5]*f[i+7];
+      ny = f[i+5]*f[i+6] - f[i+3]*f[i+8];
+      nz = f[i+3]*f[i+7] - f[i+4]*f[i+6];
+    } else {
+      int i = 4 * (p - triangleCount);
+      nx = x - spheres[i];
+      ny = y - spheres[i+1];
+      nz = z - spheres[i+2];
+    }
+    float len = (float) Math.sqrt(nx*nx + ny*ny + nz*nz);
+    if (nx*dx + ny*dy + nz*dz > 0)
+      len = -len;
+    hit.x = x;
+    hit.y = y;
+    hit.z = z;
+    hit.nx = nx / len;
+    hit.ny = ny / len;
+    hit.nz = nz / len;
+  }
+
+  /* Axis-aligned bounds of primitive p into box[6*p..6*p+5]: min x, y, z
+     then max x, y, z. */
+  void bounds(int p, float[] box) {
+    int o = 6 * p;
+    if (p < triangleCount) {
+      float[] f = triangles;
+      int i = 9 * p;
+      for (int a = 0; a < 3; a++) {
+        float v0 = f[i+a], v1 = v0 + f[i+3+a], v2 = v0 + f[i+6+a];
+        box[o+a] = Math.min(v0, Math.min(v1, v2));
+        box[o+3+a] = Math.max(v0, Math.max(v1, v2));
+      }
+    } else {
+      int i = 4 * (p - triangleCount);
+      float r = spheres[i+3];
+      for (int a = 0; a < 3; a++) {
+        box[o+a] = spheres[i+a] - r;
+        box[o+3+a] = spheres[i+a] + r;
+      }
+    }
+  }
+
+  private static float[] grow(float[] a) {
+    float[] b = new float[a.length * 2];
+    System.arraycopy(a, 0, b, 0, a.length);
+    return b;
+  }
+
+  private static int[] grow(int[] a) {
+    int[] b = new int[a.length * 2];
+    System.arraycopy(a, 0, b, 0, a.length);
+    return b;
+  }
+
+  /* A height-field mesh of about the given number of triangles on the
+     plane Plane renders (y = -1), with a few spheres over it, in view of
+     Plane's camera. Not built yet. */
+  public static Scene demo(int triangles) {
+    Scene scene = new Scene();
+    scene.addMesh(Mesh.terrain(triangles, -30, -70, 30, -14, -1.5f, 3), 0x3c9a3c);
+    scene.addSphere(-6, 2, -24, 2.5f, 0xd04020);
+    scene.addSphere(3, 1.5f, -30, 2, 0x2050d0);
+    scene.addSphere(9, 4, -42, 4, 0xe0c030);
+    return scene;
+  }
+}
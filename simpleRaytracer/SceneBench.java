@@ -0,0 +1,96 @@
+/*
+ * Scaling benchmark for Scene and BVH:
+ *
+ *   java SceneBench [-max N] [-size WxH]
+ *
+ * For Scene.demo scenes of 1k, 10k, 100k and 1M triangles (up to N),
+ * times the BVH build, then traces Plane's primary rays (camera at
+ * height 10, default 400x256) through the BVH and, for a sample of
+ * them, by testing every primitive. Prints one line per size; the
+ * nodes and tests per ray should grow with log n for the BVH and with
+ * n for the brute-force rays. The brute-force hits are also checked
+ * against the BVH's.
+ */
+public class SceneBench
+{
+  static final float EYE_Y = 10;
+  /* primitive tests spent on brute-force rays per size */
+  static final long BRUTE_BUDGET = 50000000L;
+
+  public static void main(String[] args) {
+    int max = 1000000;
+    int w = 400, h = 256;
+    for (int i = 0; i < args.length; i++) {
+      if (args[i].equals("-max")) {
+        max = Integer.parseInt(args[++i]);
+      } else if (args[i].equals("-size")) {
+        String[] wh = args[++i].split("x");
+        w = Integer.parseInt(wh[0]);
+        h = Integer.parseInt(wh[1]);
+      } else {
+        System.err.println("usage: SceneBench [-max N] [-size WxH]");
+        System.exit(2);
+      }
+    }
+
+    float[] rays = rays(w, h);
+    int n = rays.length / 3;
+    for (int triangles = 1000; triangles <= max; triangles *= 10) {
+      Scene scene = Scene.demo(triangles);
+      long start = System.nanoTime();
+      scene.build();
+      double buildMs = (System.nanoTime() - start) / 1e6;
+
+      Hit hit = new Hit();
+      float[] t = new float[n];
+      long nodes = 0, tests = 0;
+      int hits = 0;
+      start = System.nanoTime();
+      for (int r = 0; r < n; r++) {
+        hit.reset(Float.POSITIVE_INFINITY);
+        if (scene.intersect(0, EYE_Y, 0, rays[3*r], rays[3*r+1], rays[3*r+2], hit))
+          hits++;
+        t[r] = hit.t;
+        nodes += hit.nodes;
+        tests += hit.tests;
+      }
+      double bvhNs = (System.nanoTime() - start) / (double) n;
+
+      int step = (int) Math.max(1, (long) n * scene.primitives() / BRUTE_BUDGET);
+      int sampled = 0, mismatches = 0;
+      start = System.nanoTime();
+      for (int r = 0; r < n; r += step) {
+        hit.reset(Float.POSITIVE_INFINITY);
+        scene.intersectAll(0, EYE_Y, 0, rays[3*r], rays[3*r+1], rays[3*r+2], hit);
+        if (hit.t != t[r])
+          mismatches++;
+        sampled++;
+      }
+      double bruteNs = (System.nanoTime() - start) / (double) sampled;
+
+      System.out.println(scene.triangles() + " triangles: build " + buildMs + " ms, " +
+                         scene.bvh().nodes() + " nodes, depth " + scene.bvh().depth() +
+                         "; bvh " + bvhNs + " ns/ray, " + (double) nodes / n + " nodes/ray, " +
+                         (double) tests / n + " tests/ray, " + hits + " hits" +
+                         "; brute " + bruteNs + " ns/ray over " + sampled + " rays, " +
+                         mismatches + " mismatches");
+    }
+  }
+
+  /* The directions Plane.shade() computes for each pixel. */
+  static float[] rays(int w, int h) {
+    float[] rays = new float[3 * w * h];
+    float w1 = w / 2, h1 = h / 2;
+    int i = 0;
+    for (int y = 0; y < h; y++) {
+      for (int x = 0; x < w; x++) {
+        float xd = (x - w1) / w1, yd = (h1 - y) / h1, zd = -1;
+        float l = xd*xd + yd*yd + zd*zd;
+        rays[i++] = xd / l;
+        rays[i++] = yd / l;
+        rays[i++] = zd / l;
+      }
+    }
+    return rays;
+  }
+}
@@ -9,3 +9,5 @@ fi
 
 rm -f /Plane.class
 $enerjdir/bin/enerjc $enerjcargs Plane.java
+$enerjdir/bin/enerjc $enerjcargs ImageCompare.java
+$enerjdir/bin/enerjc $enerjcargs SceneBench.java
@@ -73,6 +73,16 @@ public final class DecodeHintType {
    */
   public static final DecodeHintType NEED_RESULT_POINT_CALLBACK = new DecodeHintType();
 
+  /**
+   * One-dimensional readers should decode candidate rows on several threads at once. Maps to
+   * the {@link java.util.concurrent.ForkJoinPool} to run them on. Mostly worth it together with
+   * {@link #TRY_HARDER}, which scans every row of the image. The result is the same as without
+   * the hint. RSS-14 pairs up halves found on different rows, so when it is among the formats
+   * tried, as it is unless {@link #POSSIBLE_FORMATS} leaves it out, it still decodes rows one at
+   * a time, after the other formats have been scanned for on the pool.
+   */
+  public static final DecodeHintType ROW_SCAN_POOL = new DecodeHintType();
+
   private DecodeHintType() {
   }
 
@@ -62,6 +62,10 @@ public final class CodaBarReader extends OneDReader {
   // some industries use a checksum standard but this is not part of the original codabar standard
   // for more information see : http://www.mecsw.com/specs/codabar.html
 
+  protected OneDReader newRowReader() {
+    return this; // keeps no state between rows
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws NotFoundException {
     int[] start = findAsteriskPattern(row);
     start[1] = 0; // BAS: settings this to 0 improves the recognition rate somehow?
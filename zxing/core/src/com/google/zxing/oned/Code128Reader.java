@@ -241,6 +241,10 @@ public final class Code128Reader extends OneDReader {
     }
   }
 
+  protected OneDReader newRowReader() {
+    return this; // keeps no state between rows
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints)
       throws NotFoundException, FormatException, ChecksumException {
 
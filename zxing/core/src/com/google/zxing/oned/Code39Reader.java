@@ -93,6 +93,10 @@ public final class Code39Reader extends OneDReader {
     this.extendedMode = extendedMode;
   }
 
+  protected OneDReader newRowReader() {
+    return this; // keeps no state between rows
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints)
       throws NotFoundException, ChecksumException, FormatException {
 
@@ -54,6 +54,10 @@ public final class Code93Reader extends OneDReader {
   };
   private static final int ASTERISK_ENCODING = CHARACTER_ENCODINGS[47];
 
+  protected OneDReader newRowReader() {
+    return this; // keeps no state between rows
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints)
       throws NotFoundException, ChecksumException, FormatException {
 
@@ -70,6 +70,10 @@ public final class EAN13Reader extends UPCEANReader {
     decodeMiddleCounters = new @Approx int[4];
   }
 
+  protected OneDReader newRowReader() {
+    return new EAN13Reader();
+  }
+
   protected int decodeMiddle(BitArray row, int[] startRange, StringBuffer resultString)
       throws NotFoundException {
     @Approx int[] counters = decodeMiddleCounters;
@@ -35,6 +35,10 @@ public final class EAN8Reader extends UPCEANReader {
     decodeMiddleCounters = new @Approx int[4];
   }
 
+  protected OneDReader newRowReader() {
+    return new EAN8Reader();
+  }
+
   protected int decodeMiddle(BitArray row, int[] startRange, StringBuffer result)
       throws NotFoundException {
     @Approx int[] counters = decodeMiddleCounters;
@@ -78,6 +78,10 @@ public final class ITFReader extends OneDReader {
       {N, W, N, W, N}  // 9
   };
 
+  protected OneDReader newRowReader() {
+    return new ITFReader();
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws FormatException, NotFoundException {
 
     // Find out where the Middle section (payload) starts & ends
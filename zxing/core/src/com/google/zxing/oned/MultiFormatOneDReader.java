@@ -84,6 +84,43 @@ public final class MultiFormatOneDReader extends OneDReader {
     }
   }
 
+  private MultiFormatOneDReader(Vector readers) {
+    this.readers = readers;
+  }
+
+  /**
+   * Copies the readers that can decode rows concurrently. The others, like RSS-14's, which pairs
+   * up halves found on different rows, are left to {@link #orderedRowReader()}.
+   */
+  protected OneDReader newRowReader() {
+    int size = readers.size();
+    Vector rowReaders = new Vector(size);
+    for (int i = 0; i < size; i++) {
+      OneDReader rowReader = ((OneDReader) readers.elementAt(i)).newRowReader();
+      if (rowReader != null) {
+        rowReaders.addElement(rowReader);
+      }
+    }
+    return rowReaders.isEmpty() ? null : new MultiFormatOneDReader(rowReaders);
+  }
+
+  /**
+   * The readers newRowReader() leaves out, in the same order. Where the copies all fail on a
+   * row, these are the only ones that can decode it, and they see the same calls as they would
+   * here.
+   */
+  protected OneDReader orderedRowReader() {
+    int size = readers.size();
+    Vector orderedReaders = new Vector(size);
+    for (int i = 0; i < size; i++) {
+      OneDReader orderedReader = ((OneDReader) readers.elementAt(i)).orderedRowReader();
+      if (orderedReader != null) {
+        orderedReaders.addElement(orderedReader);
+      }
+    }
+    return orderedReaders.isEmpty() ? null : new MultiFormatOneDReader(orderedReaders);
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws NotFoundException {
     int size = readers.size();
     for (int i = 0; i < size; i++) {
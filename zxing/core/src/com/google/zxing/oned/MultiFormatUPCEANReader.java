@@ -63,6 +63,19 @@ public final class MultiFormatUPCEANReader extends OneDReader {
     }
   }
 
+  private MultiFormatUPCEANReader(Vector readers) {
+    this.readers = readers;
+  }
+
+  protected OneDReader newRowReader() {
+    int size = readers.size();
+    Vector rowReaders = new Vector(size);
+    for (int i = 0; i < size; i++) {
+      rowReaders.addElement(((UPCEANReader) readers.elementAt(i)).newRowReader());
+    }
+    return new MultiFormatUPCEANReader(rowReaders);
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws NotFoundException {
     // Compute this location once and reuse it on multiple implementations
     int[] startGuardPattern = UPCEANReader.findStartGuardPattern(row);
@@ -30,6 +30,7 @@ import com.google.zxing.common.BitArray;
 
 import java.util.Enumeration;
 import java.util.Hashtable;
+import java.util.concurrent.ForkJoinPool;
 
 import enerj.lang.*;
 
@@ -93,6 +94,13 @@ public abstract class OneDReader implements Reader {
    * decided that moving up and down by about 1/16 of the image is pretty good; we try more of the
    * image if "trying harder".
    *
+   * With a {@link DecodeHintType#ROW_SCAN_POOL} hint, and a reader that can decode rows on
+   * several threads (see {@link #newRowReader()}), the rows after the middle one are scanned on
+   * that pool. Any part of the reader that must see rows in order (see
+   * {@link #orderedRowReader()}) then goes over the rows before the first one the pool decoded,
+   * and that row is decoded again by the whole reader. The result is the one the sequential scan
+   * would find first.
+   *
    * @param image The image to decode
    * @param hints Any hints that were requested
    * @return The contents of the decoded barcode
@@ -113,17 +121,54 @@ public abstract class OneDReader implements Reader {
       maxLines = 15; // 15 rows spaced 1/32 apart is roughly the middle half of the image
     }
 
+    ForkJoinPool pool = hints == null ? null :
+        (ForkJoinPool) hints.get(DecodeHintType.ROW_SCAN_POOL);
+    // Result points are only drawn for the first row we manage to load
+    Hashtable laterHints = withoutResultPointCallback(hints);
+    // After a row scan, the part of this reader it left out, and the step it decoded
+    OneDReader orderedReader = null;
+    int scannedStep = -1;
+
     for (int x = 0; x < maxLines; x++) {
 
       // Scanning from the middle out. Determine which row we're looking at next:
-      int rowStepsAboveOrBelow = (x + 1) >> 1;
-      boolean isAbove = (x & 0x01) == 0; // i.e. is x even?
-      int rowNumber = middle + rowStep * (isAbove ? rowStepsAboveOrBelow : -rowStepsAboveOrBelow);
+      int rowNumber = rowNumber(x, middle, rowStep);
       if (rowNumber < 0 || rowNumber >= height) {
         // Oops, if we run off the top or bottom, stop
         break;
       }
 
+      if (x == 1 && pool != null) {
+        // Hand the rest to the pool, up to where we would run off the image
+        int lines = x + 1;
+        while (lines < maxLines) {
+          int next = rowNumber(lines, middle, rowStep);
+          if (next < 0 || next >= height) {
+            break;
+          }
+          lines++;
+        }
+        RowScan scan = RowScan.scan(this, image, laterHints, middle, rowStep, x, lines, pool);
+        if (scan != null) {
+          orderedReader = orderedRowReader();
+          if (orderedReader == null) {
+            if (scan.isFound()) {
+              return scan.getResult();
+            }
+            break;
+          }
+          // Carry on here with just the part of this reader the scan left out, up to the step
+          // it decoded, which the whole reader decodes again
+          if (scan.isFound()) {
+            scannedStep = scan.getFoundStep();
+            maxLines = scannedStep + 1;
+          } else {
+            maxLines = lines;
+          }
+        }
+        // else this reader can't decode rows concurrently; carry on here
+      }
+
       // Estimate black point for this row and load it:
       try {
         row = image.getBlackRow(rowNumber, row);
@@ -131,49 +176,118 @@ public abstract class OneDReader implements Reader {
         continue;
       }
 
-      // While we have the image data in a BitArray, it's fairly cheap to reverse it in place to
-      // handle decoding upside down barcodes.
-      for (int attempt = 0; attempt < 2; attempt++) {
-        if (attempt == 1) { // trying again?
-          row.reverse(); // reverse the row and continue
-          // This means we will only ever draw result points *once* in the life of this method
-          // since we want to avoid drawing the wrong points after flipping the row, and,
-          // don't want to clutter with noise from every single row scan -- just the scans
-          // that start on the center line.
-          if (hints != null && hints.containsKey(DecodeHintType.NEED_RESULT_POINT_CALLBACK)) {
-            Hashtable newHints = new Hashtable(); // Can't use clone() in J2ME
-            Enumeration hintEnum = hints.keys();
-            while (hintEnum.hasMoreElements()) {
-              Object key = hintEnum.nextElement();
-              if (!key.equals(DecodeHintType.NEED_RESULT_POINT_CALLBACK)) {
-                newHints.put(key, hints.get(key));
-              }
-            }
-            hints = newHints;
-          }
-        }
-        try {
-          // Look for a barcode
-          Result result = decodeRow(rowNumber, row, hints);
-          // We found our barcode
-          if (attempt == 1) {
-            // But it was upside down, so note that
-            result.putMetadata(ResultMetadataType.ORIENTATION, new Integer(180));
-            // And remember to flip the result points horizontally.
-            ResultPoint[] points = result.getResultPoints();
-            points[0] = new ResultPoint(width - points[0].getX() - 1, points[0].getY());
-            points[1] = new ResultPoint(width - points[1].getX() - 1, points[1].getY());
-          }
-          return result;
-        } catch (ReaderException re) {
-          // continue -- just couldn't decode this row
-        }
+      OneDReader rowReader = orderedReader == null || x == scannedStep ? this : orderedReader;
+      try {
+        return rowReader.decodeRowBothWays(rowNumber, row, hints, laterHints, width);
+      } catch (NotFoundException nfe) {
+        // continue -- just couldn't decode this row
       }
+      hints = laterHints;
     }
 
     throw NotFoundException.getNotFoundInstance();
   }
 
+  /**
+   * @return the row that scan step x of doDecode() looks at: x = 0 is the middle, and each
+   *  later step alternates above and below it, rowStep farther out every two steps
+   */
+  static int rowNumber(int x, int middle, int rowStep) {
+    int rowStepsAboveOrBelow = (x + 1) >> 1;
+    boolean isAbove = (x & 0x01) == 0; // i.e. is x even?
+    return middle + rowStep * (isAbove ? rowStepsAboveOrBelow : -rowStepsAboveOrBelow);
+  }
+
+  /**
+   * Tries to decode a row as it is, then reversed.
+   *
+   * @param hints hints for the first attempt
+   * @param reversedHints hints for the second
+   * @param width width of the image the row is from
+   * @return the result of whichever attempt worked
+   * @throws NotFoundException if neither did; the row is then left reversed
+   */
+  Result decodeRowBothWays(int rowNumber, BitArray row, Hashtable hints, Hashtable reversedHints,
+      int width) throws NotFoundException {
+    // While we have the image data in a BitArray, it's fairly cheap to reverse it in place to
+    // handle decoding upside down barcodes.
+    for (int attempt = 0; attempt < 2; attempt++) {
+      if (attempt == 1) { // trying again?
+        row.reverse(); // reverse the row and continue
+        hints = reversedHints;
+      }
+      try {
+        // Look for a barcode
+        Result result = decodeRow(rowNumber, row, hints);
+        // We found our barcode
+        if (attempt == 1) {
+          // But it was upside down, so note that
+          result.putMetadata(ResultMetadataType.ORIENTATION, new Integer(180));
+          // And remember to flip the result points horizontally.
+          ResultPoint[] points = result.getResultPoints();
+          points[0] = new ResultPoint(width - points[0].getX() - 1, points[0].getY());
+          points[1] = new ResultPoint(width - points[1].getX() - 1, points[1].getY());
+        }
+        return result;
+      } catch (ReaderException re) {
+        // continue -- just couldn't decode this row
+      }
+    }
+    throw NotFoundException.getNotFoundInstance();
+  }
+
+  /**
+   * We only ever draw result points *once* in the life of doDecode(), for the first attempt
+   * at the first row, since we want to avoid drawing the wrong points after flipping the row,
+   * and don't want to clutter with noise from every single row scan -- just the scans that
+   * start on the center line.
+   *
+   * @return hints without {@link DecodeHintType#NEED_RESULT_POINT_CALLBACK}, for every later
+   *  attempt
+   */
+  private static Hashtable withoutResultPointCallback(Hashtable hints) {
+    if (hints == null || !hints.containsKey(DecodeHintType.NEED_RESULT_POINT_CALLBACK)) {
+      return hints;
+    }
+    Hashtable newHints = new Hashtable(); // Can't use clone() in J2ME
+    Enumeration hintEnum = hints.keys();
+    while (hintEnum.hasMoreElements()) {
+      Object key = hintEnum.nextElement();
+      if (!key.equals(DecodeHintType.NEED_RESULT_POINT_CALLBACK)) {
+        newHints.put(key, hints.get(key));
+      }
+    }
+    return newHints;
+  }
+
+  /**
+   * Returns a reader that decodes rows just as this one does but shares no mutable state with
+   * it, so that the two can decode rows on different threads at once. Readers that keep no
+   * state between calls to {@link #decodeRow(int, BitArray, Hashtable)} may return themselves.
+   * A reader made of others may leave out those that can't, if it returns them from
+   * {@link #orderedRowReader()}; the reader returned then fails on rows only they decode.
+   * This implementation returns null, meaning rows must be decoded one at a time, which is
+   * always safe for subclasses this method doesn't know about.
+   *
+   * @return a reader for another thread, or null if this reader can't decode rows concurrently
+   */
+  protected OneDReader newRowReader() {
+    return null;
+  }
+
+  /**
+   * Returns the part of this reader that {@link #newRowReader()} leaves out, sharing its state
+   * with this reader. On a row that the reader from newRowReader() fails on, it decodes just as
+   * this one would. This implementation returns this reader if newRowReader() is null, and
+   * otherwise null.
+   *
+   * @return the part of this reader that must decode rows one at a time and in order, or null
+   *  if there is none
+   */
+  protected OneDReader orderedRowReader() {
+    return newRowReader() == null ? this : null;
+  }
+
   /**
    * Records the size of successive runs of white and black pixels in a row, starting at a given point.
    * The values are recorded in the given array, and the number of runs recorded is equal to the size
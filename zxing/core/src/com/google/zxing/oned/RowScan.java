@@ -0,0 +1,153 @@
+/*
+ * Copyright 2010 ZXing authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.google.zxing.oned;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.NotFoundException;
+import com.google.zxing.Result;
+import com.google.zxing.common.BitArray;
+
+import java.util.Hashtable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * <p>Scans steps [from, to) of {@link OneDReader}'s middle-out row order on a fork/join pool.
+ * The steps are halved until each task has at most GRAIN of them. Each task loads and decodes
+ * its rows in order with its own reader from {@link OneDReader#newRowReader()} and its own
+ * {@link BitArray}, and stops at the first that decodes.</p>
+ *
+ * <p>The scan keeps the lowest step that decoded, which is the row the sequential scan would
+ * have returned. Once one is found, tasks give up as soon as their next step is past it, and
+ * tasks that haven't started yet do nothing; tasks on earlier steps carry on, since one of
+ * them may still decode.</p>
+ *
+ * <p>Only the part of the reader that newRowReader() copies takes part; OneDReader runs the
+ * rest over the rows in order afterwards.</p>
+ */
+final class RowScan extends RecursiveAction {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final int GRAIN = 16;
+
+  private final RowScan root;
+  private final OneDReader reader;
+  private final BinaryBitmap image;
+  private final Hashtable hints;
+  private final int middle;
+  private final int rowStep;
+  private final int from;
+  private final int to;
+
+  // Set on the root only
+  private volatile int foundStep = Integer.MAX_VALUE;
+  private Result result;
+
+  private RowScan(RowScan root, OneDReader reader, BinaryBitmap image, Hashtable hints,
+      int middle, int rowStep, int from, int to) {
+    this.root = root == null ? this : root;
+    this.reader = reader;
+    this.image = image;
+    this.hints = hints;
+    this.middle = middle;
+    this.rowStep = rowStep;
+    this.from = from;
+    this.to = to;
+  }
+
+  /**
+   * @return the finished scan, or null, having done nothing, if reader can't decode rows
+   *  concurrently
+   */
+  static RowScan scan(OneDReader reader, BinaryBitmap image, Hashtable hints, int middle,
+      int rowStep, int from, int to, ForkJoinPool pool) {
+    if (reader.newRowReader() == null) {
+      return null;
+    }
+    RowScan scan = new RowScan(null, reader, image, hints, middle, rowStep, from, to);
+    pool.invoke(scan);
+    return scan;
+  }
+
+  boolean isFound() {
+    return foundStep != Integer.MAX_VALUE;
+  }
+
+  /**
+   * @return the lowest step that decoded, if {@link #isFound()}
+   */
+  int getFoundStep() {
+    return foundStep;
+  }
+
+  /**
+   * @return what the found row decoded to; like decodeRow(), this may be null
+   */
+  synchronized Result getResult() {
+    return result;
+  }
+
+  private synchronized void found(int step, Result result) {
+    if (step < foundStep) {
+      this.result = result;
+      foundStep = step;
+    }
+  }
+
+  protected void compute() {
+    if (from >= root.foundStep) {
+      return;
+    }
+    if (to - from > GRAIN) {
+      int half = from + (to - from) / 2;
+      invokeAll(new RowScan(root, reader, image, hints, middle, rowStep, from, half),
+          new RowScan(root, reader, image, hints, middle, rowStep, half, to));
+      return;
+    }
+
+    OneDReader rowReader = reader.newRowReader();
+    int width = image.getWidth();
+    // Binarizers and luminance sources keep scratch buffers, so load rows through a view of our
+    // own if the image can make one, or else take turns on the shared one
+    BinaryBitmap view = image.isCropSupported() ?
+        image.crop(0, 0, width, image.getHeight()) : null;
+    BitArray row = new BitArray(width);
+    for (int x = from; x < to && x < root.foundStep; x++) {
+      int rowNumber = OneDReader.rowNumber(x, middle, rowStep);
+      try {
+        if (view != null) {
+          row = view.getBlackRow(rowNumber, row);
+        } else {
+          synchronized (image) {
+            row = image.getBlackRow(rowNumber, row);
+          }
+        }
+      } catch (NotFoundException nfe) {
+        continue;
+      }
+
+      try {
+        root.found(x, rowReader.decodeRowBothWays(rowNumber, row, hints, hints, width));
+        return;
+      } catch (NotFoundException nfe) {
+        // continue -- just couldn't decode this row
+      }
+    }
+  }
+
+}
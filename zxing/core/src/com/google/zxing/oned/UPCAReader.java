@@ -36,6 +36,10 @@ public final class UPCAReader extends UPCEANReader {
 
   private final UPCEANReader ean13Reader = new EAN13Reader();
 
+  protected OneDReader newRowReader() {
+    return new UPCAReader();
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, int[] startGuardRange, Hashtable hints)
       throws NotFoundException, FormatException, ChecksumException {
     return maybeReturnResult(ean13Reader.decodeRow(rowNumber, row, startGuardRange, hints));
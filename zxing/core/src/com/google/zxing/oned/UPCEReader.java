@@ -56,6 +56,10 @@ public final class UPCEReader extends UPCEANReader {
     decodeMiddleCounters = new @Approx int[4];
   }
 
+  protected OneDReader newRowReader() {
+    return new UPCEReader();
+  }
+
   protected int decodeMiddle(BitArray row, int[] startRange, StringBuffer result)
       throws NotFoundException {
     @Approx int[] counters = decodeMiddleCounters;
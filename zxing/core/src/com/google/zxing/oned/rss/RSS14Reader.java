@@ -23,6 +23,7 @@ import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.ResultPointCallback;
 import com.google.zxing.common.BitArray;
+import com.google.zxing.oned.OneDReader;
 
 import java.util.Enumeration;
 import java.util.Hashtable;
@@ -62,6 +63,16 @@ public final class RSS14Reader extends AbstractRSSReader {
     possibleRightPairs = new Vector();
   }
 
+  /**
+   * A code's two halves may be read on different rows and are paired up across all the rows
+   * this reader has seen, so rows must be decoded in order by a single reader; with a
+   * {@link com.google.zxing.DecodeHintType#ROW_SCAN_POOL} hint they are, after the other
+   * readers have been over them on the pool.
+   */
+  protected OneDReader newRowReader() {
+    return null;
+  }
+
   public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) throws NotFoundException {
     Pair leftPair = decodePair(row, false, rowNumber, hints);
     addOrTally(possibleLeftPairs, leftPair);
@@ -34,6 +34,7 @@ import com.google.zxing.NotFoundException;
 import com.google.zxing.Result;
 import com.google.zxing.ResultPoint;
 import com.google.zxing.common.BitArray;
+import com.google.zxing.oned.OneDReader;
 import com.google.zxing.oned.rss.AbstractRSSReader;
 import com.google.zxing.oned.rss.DataCharacter;
 import com.google.zxing.oned.rss.FinderPattern;
@@ -48,6 +49,9 @@ import enerj.lang.*;
  */
 public final class RSSExpandedReader extends AbstractRSSReader{
     // EnerJ unused
+    protected OneDReader newRowReader() {
+        return new RSSExpandedReader();
+    }
     public Result decodeRow(int rowNumber, BitArray row, Hashtable hints) {
               return null;
           }
@@ -22,6 +22,7 @@ import com.google.zxing.DecodeHintType;
 import com.google.zxing.LuminanceSource;
 import com.google.zxing.MultiFormatReader;
 import com.google.zxing.NotFoundException;
+import com.google.zxing.Reader;
 import com.google.zxing.ChecksumException;
 import com.google.zxing.FormatException;
 import com.google.zxing.Result;
@@ -45,6 +46,7 @@ import java.net.URISyntaxException;
 import java.nio.charset.Charset;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.imageio.ImageIO;
 
@@ -75,7 +77,9 @@ public final class CommandLineRunner {
     boolean productsOnly = false;
     boolean dumpResults = false;
     boolean dumpBlackPoint = false;
+    boolean allFormats = false;
     int[] crop = null;
+    int rowScanThreads = 0;
     for (String arg : args) {
       if ("--try_harder".equals(arg)) {
         tryHarder = true;
@@ -87,12 +91,16 @@ public final class CommandLineRunner {
         dumpResults = true;
       } else if ("--dump_black_point".equals(arg)) {
         dumpBlackPoint = true;
+      } else if ("--all_formats".equals(arg)) {
+        allFormats = true;
       } else if (arg.startsWith("--crop")) {
         crop = new int[4];
         String[] tokens = arg.substring(7).split(",");
         for (int i = 0; i < crop.length; i++) {
           crop[i] = Integer.parseInt(tokens[i]);
         }
+      } else if (arg.startsWith("--row_scan_threads")) {
+        rowScanThreads = Integer.parseInt(arg.substring(19));
       } else if ("--sleep".equals(arg)) {
         System.out.println("Sleeping for profiler connection...");
         Thread.sleep(10000);
@@ -104,10 +112,19 @@ public final class CommandLineRunner {
       }
     }
 
-    Hashtable<DecodeHintType, Object> hints = buildHints(tryHarder, pureBarcode, productsOnly);
-    for (String arg : args) {
-      if (!arg.startsWith("--")) {
-        decodeOneArgument(arg, hints, dumpResults, dumpBlackPoint, crop);
+    ForkJoinPool rowScanPool = rowScanThreads > 0 ? new ForkJoinPool(rowScanThreads) : null;
+    Hashtable<DecodeHintType, Object> hints =
+        buildHints(tryHarder, pureBarcode, productsOnly, rowScanPool);
+    Reader reader = allFormats ? new MultiFormatReader() : new QRCodeReader();
+    try {
+      for (String arg : args) {
+        if (!arg.startsWith("--")) {
+          decodeOneArgument(arg, reader, hints, dumpResults, dumpBlackPoint, crop);
+        }
+      }
+    } finally {
+      if (rowScanPool != null) {
+        rowScanPool.shutdown();
       }
     }
   }
@@ -115,7 +132,8 @@ public final class CommandLineRunner {
   // Manually turn on all formats, even those not yet considered production quality.
   private static Hashtable<DecodeHintType, Object> buildHints(boolean tryHarder,
                                                               boolean pureBarcode,
-                                                              boolean productsOnly) {
+                                                              boolean productsOnly,
+                                                              ForkJoinPool rowScanPool) {
     Hashtable<DecodeHintType, Object> hints = new Hashtable<DecodeHintType, Object>(3);
     Vector<BarcodeFormat> vector = new Vector<BarcodeFormat>(8);
     vector.addElement(BarcodeFormat.UPC_A);
@@ -140,6 +158,9 @@ public final class CommandLineRunner {
     if (pureBarcode) {
       hints.put(DecodeHintType.PURE_BARCODE, Boolean.TRUE);
     }
+    if (rowScanPool != null) {
+      hints.put(DecodeHintType.ROW_SCAN_POOL, rowScanPool);
+    }
     return hints;
   }
 
@@ -151,10 +172,13 @@ public final class CommandLineRunner {
     System.err.println("  --products_only: Only decode the UPC and EAN families of barcodes");
     System.err.println("  --dump_results: Write the decoded contents to input.txt");
     System.err.println("  --dump_black_point: Compare black point algorithms as input.mono.png");
+    System.err.println("  --all_formats: Look for every supported format, not just QR Code");
     System.err.println("  --crop=left,top,width,height: Only examine cropped region of input image(s)");
+    System.err.println("  --row_scan_threads=n: Decode rows of 1D barcodes on n threads");
   }
 
   private static void decodeOneArgument(String argument,
+                                        Reader reader,
                                         Hashtable<DecodeHintType, Object> hints,
                                         boolean dumpResults,
                                         boolean dumpBlackPoint,
@@ -176,7 +200,7 @@ public final class CommandLineRunner {
           if (filename.contains(".mono.png")) {
             continue;
           }
-          Result result = decode(input.toURI(), hints, dumpBlackPoint, crop);
+          Result result = decode(input.toURI(), reader, hints, dumpBlackPoint, crop);
           if (result != null) {
             successful++;
             if (dumpResults) {
@@ -188,13 +212,13 @@ public final class CommandLineRunner {
         System.out.println("\nDecoded " + successful + " files out of " + total +
             " successfully (" + (successful * 100 / total) + "%)\n");
       } else {
-        Result result = decode(inputFile.toURI(), hints, dumpBlackPoint, crop);
+        Result result = decode(inputFile.toURI(), reader, hints, dumpBlackPoint, crop);
         if (dumpResults) {
           dumpResult(inputFile, result);
         }
       }
     } else {
-      decode(new URI(argument), hints, dumpBlackPoint, crop);
+      decode(new URI(argument), reader, hints, dumpBlackPoint, crop);
     }
   }
 
@@ -218,6 +242,7 @@ public final class CommandLineRunner {
   }
 
   private static Result decode(URI uri,
+                               Reader reader,
                                Hashtable<DecodeHintType, Object> hints,
                                boolean dumpBlackPoint,
                                int[] crop) throws IOException {
@@ -242,7 +267,7 @@ public final class CommandLineRunner {
       if (dumpBlackPoint) {
         dumpBlackPoint(uri, image, bitmap);
       }
-      Result result = new QRCodeReader().decode(bitmap, hints);
+      Result result = reader.decode(bitmap, hints);
       ParsedResult parsedResult = ResultParser.parseResult(result);
       System.out.println(uri.toString() + " (format: " + result.getBarcodeFormat() +
           ", type: " + parsedResult.getType() + "):\nRaw result:\n" + result.getText() +